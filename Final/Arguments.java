@@ -0,0 +1,59 @@
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// The key=value arguments every main takes. A main reads each key it knows with its default, then
+// calls rejectUnknown so a misspelt key fails instead of silently running with the default.
+class Arguments {
+    private final Map<String, String> values = new LinkedHashMap<>();
+    private final Set<String> read = new LinkedHashSet<>();
+
+    Arguments(String[] args) {
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value: " + arg);
+            }
+            values.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+    }
+
+    boolean has(String key) {
+        read.add(key);
+        return values.containsKey(key);
+    }
+
+    String get(String key, String fallback) {
+        read.add(key);
+        return values.getOrDefault(key, fallback);
+    }
+
+    int getInt(String key, int fallback) {
+        String value = get(key, null);
+        return value == null ? fallback : Integer.parseInt(value);
+    }
+
+    long getLong(String key, long fallback) {
+        String value = get(key, null);
+        return value == null ? fallback : Long.parseLong(value);
+    }
+
+    double getDouble(String key, double fallback) {
+        String value = get(key, null);
+        return value == null ? fallback : Double.parseDouble(value);
+    }
+
+    boolean getBoolean(String key, boolean fallback) {
+        String value = get(key, null);
+        return value == null ? fallback : Boolean.parseBoolean(value);
+    }
+
+    void rejectUnknown() {
+        for (String key : values.keySet()) {
+            if (!read.contains(key)) {
+                throw new IllegalArgumentException("Unknown argument " + key + ", expected one of " + read);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+
+// Runs another sink on its own thread behind a bounded queue. accept() only enqueues, so the miner
+// never waits on I/O unless the queue is full; then it blocks until the sink catches up, which
+// keeps memory bounded. A failure of the sink is rethrown by the next accept() or by close().
+class AsyncResultSink implements ResultSink {
+    private static final WindowResult END = new WindowResult(-1, -1, 0, Collections.emptyList());
+    private static final WindowResult FLUSH = new WindowResult(-2, -2, 0, Collections.emptyList());
+
+    private final ResultSink sink;
+    private final QueueWorker<WindowResult> worker;
+    private long stalls = 0;
+    private volatile boolean closed = false;
+    // FLUSH markers queued and those the worker has acted on, guarded by flushes
+    private final Object flushes = new Object();
+    private long flushesQueued = 0;
+    private long flushesDone = 0;
+
+    public AsyncResultSink(ResultSink sink, int capacity) {
+        this.sink = sink;
+        this.worker = new QueueWorker<>("result-sink", capacity, END, this::write);
+        worker.start();
+    }
+
+    private void write(WindowResult result) throws IOException {
+        if (result != FLUSH) {
+            sink.accept(result);
+            return;
+        }
+        sink.flush();
+        synchronized (flushes) {
+            flushesDone++;
+            flushes.notifyAll();
+        }
+    }
+
+    @Override
+    public void accept(WindowResult result) throws IOException {
+        if (closed) {
+            throw new IOException("Result sink is closed");
+        }
+        checkFailure();
+        if (!worker.offer(result)) {
+            stalls++;
+            put(result);
+        }
+    }
+
+    // Waits until the results accepted before the call are written and flushed. Unlike accept(),
+    // it may be called from another thread, e.g. the snapshot writer's.
+    @Override
+    public void flush() throws IOException {
+        if (closed) {
+            throw new IOException("Result sink is closed");
+        }
+        long target;
+        synchronized (flushes) {
+            target = ++flushesQueued;
+        }
+        put(FLUSH);
+        try {
+            synchronized (flushes) {
+                while (flushesDone < target) {
+                    checkFailure();
+                    // A failed worker drops the marker without notifying, hence the timeout
+                    flushes.wait(100);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing the result sink");
+        }
+    }
+
+    // How often accept() had to wait for the sink
+    public long stalls() {
+        return stalls;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            worker.finish();
+        } catch (InterruptedException e) {
+            worker.interrupt();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the result sink");
+        } finally {
+            sink.close();
+        }
+        checkFailure();
+    }
+
+    private void put(WindowResult result) throws InterruptedIOException {
+        try {
+            worker.put(result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the result sink");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable cause = worker.failure();
+        if (cause != null) {
+            throw new IOException("Result sink failed", cause);
+        }
+    }
+}
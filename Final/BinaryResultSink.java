@@ -0,0 +1,162 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Writes results in a compact binary form:
+//   int MAGIC, int VERSION
+//   the item names: int size, then per item an int length and the UTF-8 bytes
+//   per window: long slide, long lastTid, double ttw, int FWP count,
+//     then per FWP a varint length and its ascending item ids as varint deltas
+// Windows follow each other up to the end of the file.
+class BinaryResultSink implements ResultSink {
+    static final int MAGIC = 0x46575052; // "FWPR"
+    static final int VERSION = 1;
+
+    private final DataOutputStream out;
+
+    public BinaryResultSink(Path file, ItemDictionary dictionary) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        writeHeader(dictionary);
+    }
+
+    private BinaryResultSink(DataOutputStream out) {
+        this.out = out;
+    }
+
+    // Carries on a file written by a miner that is resuming after its slide slides: the windows
+    // up to that slide stay, later ones and a window cut short by the crash are dropped, and new
+    // windows are appended. A file that does not get past its header is started again.
+    public static BinaryResultSink resume(Path file, ItemDictionary dictionary, long slides) throws IOException {
+        long keep = Files.exists(file) ? validLength(file, dictionary, slides) : -1;
+        if (keep < 0) {
+            return new BinaryResultSink(file, dictionary);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(keep);
+        }
+        return new BinaryResultSink(new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.APPEND), 1 << 16)));
+    }
+
+    // Length of the header and the complete windows up to slide slides, or -1 without a header
+    private static long validLength(Path file, ItemDictionary dictionary, long slides) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            long offset;
+            try {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException(file + " is not a result file");
+                }
+                int version = in.readInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported result file version " + version);
+                }
+                int size = in.readInt();
+                if (size != dictionary.size()) {
+                    throw new IOException(file + " has " + size + " items, the snapshot " + dictionary.size());
+                }
+                offset = 12;
+                for (int id = 0; id < size; id++) {
+                    int length = in.readInt();
+                    in.skipNBytes(length);
+                    offset += 4 + length;
+                }
+            } catch (EOFException e) {
+                return -1;
+            }
+            int[] read = new int[1];
+            try {
+                while (true) {
+                    long slide = in.readLong();
+                    if (slide > slides) {
+                        return offset;
+                    }
+                    in.readLong();
+                    in.readDouble();
+                    int count = in.readInt();
+                    long length = 28;
+                    for (int f = 0; f < count; f++) {
+                        int items = readVarInt(in, read);
+                        length += read[0];
+                        for (int i = 0; i < items; i++) {
+                            readVarInt(in, read);
+                            length += read[0];
+                        }
+                    }
+                    offset += length;
+                }
+            } catch (EOFException e) {
+                return offset;
+            }
+        }
+    }
+
+    // Reads a varint and stores the number of bytes it took in read[0]
+    private static int readVarInt(DataInputStream in, int[] read) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                read[0] = shift / 7 + 1;
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private void writeHeader(ItemDictionary dictionary) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(dictionary.size());
+        for (int id = 0; id < dictionary.size(); id++) {
+            byte[] name = dictionary.name(id).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(name.length);
+            out.write(name);
+        }
+    }
+
+    @Override
+    public void accept(WindowResult result) throws IOException {
+        out.writeLong(result.slide);
+        out.writeLong(result.lastTid);
+        out.writeDouble(result.ttw);
+        out.writeInt(result.fwps.size());
+        for (int[] itemSet : result.fwps) {
+            writeVarInt(itemSet.length);
+            int previous = 0;
+            for (int item : itemSet) {
+                writeVarInt(item - previous);
+                previous = item;
+            }
+        }
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,94 @@
+import java.util.Arrays;
+
+// Candidates of one equivalence class, addressed by a dense id. Each candidate keeps its
+// WN-list and a sort key: the rank of the item its WN-list nodes belong to. findFWPs joins
+// every candidate onto the ones before it, so after sort() those must sit higher in the tree.
+class CandidateStore {
+    private WNList[] lists;
+    private int[] keys;
+    // Window slots of each candidate, for closed mining only; null otherwise
+    private long[][] tidSets;
+    private int size = 0;
+
+    public CandidateStore(int capacity) {
+        this.lists = new WNList[Math.max(capacity, 1)];
+        this.keys = new int[lists.length];
+    }
+
+    public int add(WNList list, int key) {
+        if (size == lists.length) {
+            lists = Arrays.copyOf(lists, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+            if (tidSets != null) {
+                tidSets = Arrays.copyOf(tidSets, size * 2);
+            }
+        }
+        lists[size] = list;
+        keys[size] = key;
+        return size++;
+    }
+
+    public int add(WNList list, int key, long[] tidSet) {
+        int id = add(list, key);
+        setTidSet(id, tidSet);
+        return id;
+    }
+
+    public long[] tidSet(int id) {
+        return tidSets[id];
+    }
+
+    public void setTidSet(int id, long[] tidSet) {
+        if (tidSets == null) {
+            tidSets = new long[lists.length][];
+        }
+        tidSets[id] = tidSet;
+    }
+
+    public WNList list(int id) {
+        return lists[id];
+    }
+
+    public int[] itemSet(int id) {
+        return lists[id].itemSet;
+    }
+
+    public int key(int id) {
+        return keys[id];
+    }
+
+    public double ws(int id, double windowTTW) {
+        return lists[id].totalWeight / windowTTW;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // One primitive sort of (key, id) pairs; keys are distinct within a class
+    public void sort() {
+        long[] order = new long[size];
+        for (int id = 0; id < size; id++) {
+            order[id] = ((long) keys[id] << 32) | id;
+        }
+        Arrays.sort(order);
+        WNList[] sortedLists = new WNList[lists.length];
+        int[] sortedKeys = new int[keys.length];
+        long[][] sortedTidSets = tidSets != null ? new long[tidSets.length][] : null;
+        for (int i = 0; i < size; i++) {
+            int id = (int) order[i];
+            sortedLists[i] = lists[id];
+            sortedKeys[i] = keys[id];
+            if (sortedTidSets != null) {
+                sortedTidSets[i] = tidSets[id];
+            }
+        }
+        lists = sortedLists;
+        keys = sortedKeys;
+        tidSets = sortedTidSets;
+    }
+}
@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// State of closed or maximal mining, kept from slide to slide. A closed FWP occurs in no fewer
+// window transactions than any of its proper supersets, so no superset shares its ws; a maximal
+// FWP has no frequent proper superset at all. findClosedFWPs does the mining; this object holds
+// what it checks against: the window slots of every frequent item, ordered by rank, and in maximal
+// mode a ClosedSetIndex of the maximal candidates found so far. The index outlives the slide: the
+// last slide's maximal FWPs that are still frequent seed it, so the branches they cover are
+// pruned from the first join on.
+class ClosedFWPs {
+    enum Mode {
+        CLOSED, MAXIMAL
+    }
+
+    final Mode mode;
+    final ClosedSetIndex found = new ClosedSetIndex();
+
+    // The frequent items of the slide by ascending rank, with their window slots and slot counts
+    int[] items = new int[0];
+    int[] ranks = new int[0];
+    long[][] tidSets = new long[0][];
+    int[] counts = new int[0];
+    // Position in items of each rank that belongs to a frequent item
+    private int[] positions = new int[0];
+
+    private List<int[]> previous = Collections.emptyList();
+    private WindowIndex index;
+    private double windowTTW;
+
+    public ClosedFWPs(Mode mode) {
+        this.mode = mode;
+    }
+
+    public boolean maximal() {
+        return mode == Mode.MAXIMAL;
+    }
+
+    // Starts a slide on the 1-FWPs I1, which come sorted by rank, and gives them their slots
+    public void begin(WindowIndex index, CandidateStore I1, double minWs) {
+        int n = I1.size();
+        items = new int[n];
+        ranks = new int[n];
+        tidSets = new long[n][];
+        counts = new int[n];
+        for (int id = 0; id < n; id++) {
+            items[id] = I1.itemSet(id)[0];
+            ranks[id] = I1.key(id);
+            tidSets[id] = index.tidSet(items[id]);
+            counts[id] = count(tidSets[id]);
+            I1.setTidSet(id, tidSets[id]);
+        }
+        positions = new int[n == 0 ? 0 : ranks[n - 1] + 1];
+        for (int id = 0; id < n; id++) {
+            positions[ranks[id]] = id;
+        }
+
+        this.index = index;
+        this.windowTTW = index.ttw();
+        found.clear();
+        if (maximal()) {
+            for (int[] itemSet : previous) {
+                if (frequent(itemSet, minWs)) {
+                    found.add(itemSet);
+                }
+            }
+        }
+    }
+
+    // Ends the slide. Closed FWPs come out as mined; maximal ones are the candidates no other
+    // candidate contains. A candidate is only stored while no stored one contains it, so only
+    // candidates stored after it can.
+    public List<int[]> finish(List<int[]> closed) {
+        if (!maximal()) {
+            return closed;
+        }
+        List<int[]> result = new ArrayList<>();
+        for (int id = 0; id < found.size(); id++) {
+            if (!found.heldLater(id)) {
+                result.add(found.get(id));
+            }
+        }
+        previous = result;
+        return new ArrayList<>(result);
+    }
+
+    // ws from the window index, with a margin: the index and the WN-lists add tw in different
+    // orders, and an itemset the miner itself would find infrequent must never be reported
+    boolean frequent(int[] itemSet, double minWs) {
+        return miningFWPsFromBenmarkDataset.calculateWs(index, windowTTW, itemSet) >= minWs * (1 + 1e-9);
+    }
+
+    // Whether the itemset with slots tids stays frequent with every non-folded I_s[j], j < i, added.
+    // Sums tw in the same slot order as WindowIndex.weightedSupport, so both agree to the last bit,
+    // and gives up once the slots left could not make up the threshold even if none dropped out.
+    boolean frequentWithAll(long[] tids, CandidateStore I_s, boolean[] folded, int i, double minWs) {
+        double threshold = minWs * (1 + 1e-9) * windowTTW;
+        double left = I_s.list(i).totalWeight * (1 + 1e-9);
+        double sum = 0;
+        for (int w = 0; w < tids.length; w++) {
+            if (sum + left < threshold) {
+                return false;
+            }
+            long word = tids[w];
+            int base = w << 6;
+            for (long bits = word; bits != 0; bits &= bits - 1) {
+                left -= index.tw(base + Long.numberOfTrailingZeros(bits));
+            }
+            for (int j = i - 1; j >= 0 && word != 0; j--) {
+                if (!folded[j]) {
+                    word &= I_s.tidSet(j)[w];
+                }
+            }
+            while (word != 0) {
+                sum += index.tw(base + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return sum / windowTTW >= minWs * (1 + 1e-9);
+    }
+
+    // The frequent item holding the given rank
+    int item(int rank) {
+        return items[positions[rank]];
+    }
+
+    // False when an item ranked below key (the rank of itemSet's newest item), and not in itemSet,
+    // occurs in every slot of tids: then itemSet is not closed, and nor is any extension of it
+    boolean prefixClosed(int key, int[] itemSet, long[] tids) {
+        int count = count(tids);
+        for (int p = positions[key] + 1; p < ranks.length; p++) {
+            if (counts[p] >= count && Arrays.binarySearch(itemSet, items[p]) < 0 && covers(tidSets[p], tids)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long[] and(long[] a, long[] b) {
+        long[] result = new long[a.length];
+        for (int w = 0; w < a.length; w++) {
+            result[w] = a[w] & b[w];
+        }
+        return result;
+    }
+
+    static int count(long[] tidSet) {
+        int count = 0;
+        for (long word : tidSet) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // True when every slot of a is also one of b
+    static boolean covers(long[] b, long[] a) {
+        for (int w = 0; w < a.length; w++) {
+            if ((a[w] & ~b[w]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
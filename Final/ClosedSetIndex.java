@@ -0,0 +1,152 @@
+import java.util.Arrays;
+
+// Itemsets with superset queries. Every item keeps a bitmap over the stored sets, so the sets
+// holding all items of a query are the AND of the query items' bitmaps. clear() keeps the arrays,
+// so an index reused slide after slide stops allocating once it has grown to the result size.
+class ClosedSetIndex {
+    private int[][] sets = new int[64][];
+    private int size = 0;
+    // Per item, one bit per stored set; words long each, or null for items not stored yet
+    private long[][] postings = new long[16][];
+    // Number of stored sets holding each item
+    private int[] counts = new int[16];
+    private int words = 1;
+
+    public int size() {
+        return size;
+    }
+
+    public int[] get(int id) {
+        return sets[id];
+    }
+
+    public void clear() {
+        for (long[] posting : postings) {
+            if (posting != null) {
+                Arrays.fill(posting, 0);
+            }
+        }
+        Arrays.fill(counts, 0);
+        Arrays.fill(sets, 0, size, null);
+        size = 0;
+    }
+
+    // Stores a set of distinct items and returns its id; duplicates are the caller's to avoid
+    public int add(int[] set) {
+        if (size == sets.length) {
+            sets = Arrays.copyOf(sets, size * 2);
+        }
+        if (size == words * 64) {
+            words *= 2;
+            for (int item = 0; item < postings.length; item++) {
+                if (postings[item] != null) {
+                    postings[item] = Arrays.copyOf(postings[item], words);
+                }
+            }
+        }
+        int id = size++;
+        sets[id] = set;
+        for (int item : set) {
+            if (item >= postings.length) {
+                postings = Arrays.copyOf(postings, Math.max(item + 1, postings.length * 2));
+                counts = Arrays.copyOf(counts, postings.length);
+            }
+            if (postings[item] == null) {
+                postings[item] = new long[words];
+            }
+            postings[item][id >>> 6] |= 1L << id;
+            counts[item]++;
+        }
+        return id;
+    }
+
+    // The stored sets holding some itemset while mining goes on under it: the ids of those stored
+    // before end, and every set stored from end on, since only mining under the itemset adds sets
+    static final class Focus {
+        final int[] ids;
+        final int end;
+
+        Focus(int[] ids, int end) {
+            this.ids = ids;
+            this.end = end;
+        }
+    }
+
+    // Every stored set, for the empty itemset
+    public Focus all() {
+        return new Focus(new int[0], 0);
+    }
+
+    // The sets of focus that also hold items[from..to)
+    public Focus narrow(Focus focus, int[] items, int from, int to) {
+        int[] ids = new int[focus.ids.length + size - focus.end];
+        int count = 0;
+        for (int id : focus.ids) {
+            if (holds(id, items, from, to)) {
+                ids[count++] = id;
+            }
+        }
+        for (int id = focus.end; id < size; id++) {
+            if (holds(id, items, from, to)) {
+                ids[count++] = id;
+            }
+        }
+        return new Focus(Arrays.copyOf(ids, count), size);
+    }
+
+    // True when a set of focus also holds items[from..to)
+    public boolean anyHolding(Focus focus, int[] items, int from, int to) {
+        for (int id : focus.ids) {
+            if (holds(id, items, from, to)) {
+                return true;
+            }
+        }
+        for (int id = focus.end; id < size; id++) {
+            if (holds(id, items, from, to)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean holds(int id, int[] items, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int item = items[i];
+            if (item >= postings.length || postings[item] == null || (postings[item][id >>> 6] & (1L << id)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // True when a set stored after id holds every item of set id. Callers that only store a set
+    // when no stored set holds it yet can ask just this to find the sets other sets contain.
+    // The bitmaps are ANDed a word at a time from the rarest item, so most words settle early.
+    public boolean heldLater(int id) {
+        int[] set = sets[id];
+        int rarest = -1;
+        for (int item : set) {
+            if (rarest < 0 || counts[item] < counts[rarest]) {
+                rarest = item;
+            }
+        }
+        if (rarest < 0) {
+            return id + 1 < size;
+        }
+        long[] first = postings[rarest];
+        int used = (size + 63) >>> 6;
+        for (int w = (id + 1) >>> 6; w < used; w++) {
+            long word = first[w];
+            if (w == (id + 1) >>> 6) {
+                word &= -1L << (id + 1);
+            }
+            for (int i = 0; i < set.length && word != 0; i++) {
+                word &= postings[set[i]][w];
+            }
+            if (word != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
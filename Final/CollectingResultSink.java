@@ -0,0 +1,20 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps every result in memory, for tests and small runs
+class CollectingResultSink implements ResultSink {
+    private final List<WindowResult> results = new ArrayList<>();
+
+    @Override
+    public synchronized void accept(WindowResult result) {
+        results.add(result);
+    }
+
+    public synchronized List<WindowResult> results() {
+        return new ArrayList<>(results);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Reads the binary columnar format of ColumnarTransactionWriter. Each block is memory mapped on
+// its own and decoded through one cursor per column, so a row costs a few varint reads and files
+// of any size can be replayed. seek() jumps to any row through the block table.
+class ColumnarTransactionReader implements TransactionSource {
+    private final FileChannel channel;
+    private final ItemDictionary dictionary;
+    private final long rowCount;
+    private final long[] blockOffsets;
+    private final long[] blockFirstRows;
+    private final long footerOffset;
+
+    private MappedByteBuffer block;
+    private int blockIndex = -1;
+    private int blockRows;
+    private int rowInBlock;
+    private int tidCursor, twCursor, lengthCursor, itemCursor;
+    // Value of the last varint read
+    private long varint;
+
+    private int[] items = new int[32];
+    private int itemCount;
+    private long tid;
+    private double tw;
+
+    public ColumnarTransactionReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < 20) {
+                throw new IOException("Not a transaction file: " + path);
+            }
+            ByteBuffer header = read(0, 8);
+            ByteBuffer trailer = read(size - 12, 12);
+            if (header.getInt() != ColumnarTransactionWriter.MAGIC) {
+                throw new IOException("Not a transaction file: " + path);
+            }
+            int version = header.getInt();
+            footerOffset = trailer.getLong();
+            if (version != ColumnarTransactionWriter.VERSION || trailer.getInt() != ColumnarTransactionWriter.MAGIC) {
+                throw new IOException("Unsupported or truncated transaction file: " + path);
+            }
+            if (footerOffset <= 0 || footerOffset > size - 12 || size - 12 - footerOffset > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt footer offset " + footerOffset + " in transaction file: " + path);
+            }
+
+            ByteBuffer footer = read(footerOffset, (int) (size - 12 - footerOffset));
+            Map<String, Double> weights = new LinkedHashMap<>();
+            int itemCount = footer.getInt();
+            for (int id = 0; id < itemCount; id++) {
+                byte[] name = new byte[footer.getInt()];
+                footer.get(name);
+                weights.put(new String(name, StandardCharsets.UTF_8), footer.getDouble());
+            }
+            dictionary = ItemDictionary.fromWeights(weights);
+            rowCount = footer.getLong();
+            int blockCount = footer.getInt();
+            blockOffsets = new long[blockCount];
+            blockFirstRows = new long[blockCount];
+            for (int b = 0; b < blockCount; b++) {
+                blockOffsets[b] = footer.getLong();
+                blockFirstRows[b] = footer.getLong();
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            channel.close();
+            throw new IOException("Corrupt transaction file: " + path, e);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (rowInBlock == blockRows) {
+            if (blockIndex + 1 >= blockOffsets.length) {
+                return false;
+            }
+            load(blockIndex + 1);
+        }
+        tidCursor = readVarLong(tidCursor);
+        tid = rowInBlock == 0 ? varint : tid + ((varint >>> 1) ^ -(varint & 1));
+        tw = block.getDouble(twCursor);
+        twCursor += 8;
+        lengthCursor = readVarLong(lengthCursor);
+        itemCount = (int) varint;
+        if (itemCount > items.length) {
+            items = new int[Math.max(itemCount, items.length * 2)];
+        }
+        int previous = 0;
+        for (int i = 0; i < itemCount; i++) {
+            itemCursor = readVarLong(itemCursor);
+            previous += (int) varint;
+            items[i] = previous;
+        }
+        rowInBlock++;
+        return true;
+    }
+
+    // Positions the reader so that the following next() returns the given row
+    public void seek(long row) throws IOException {
+        if (row < 0 || row > rowCount) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Rows: " + rowCount);
+        }
+        if (row == rowCount) {
+            // Past the last block, so the next call to next() reports the end
+            block = null;
+            blockIndex = blockOffsets.length - 1;
+            blockRows = 0;
+            rowInBlock = 0;
+            return;
+        }
+        int b = Arrays.binarySearch(blockFirstRows, row);
+        load(b >= 0 ? b : -b - 2);
+        for (long skip = row - blockFirstRows[blockIndex]; skip > 0; skip--) {
+            next();
+        }
+    }
+
+    @Override
+    public long skip(long rows) throws IOException {
+        long row = blockIndex < 0 ? 0 : block == null ? rowCount : blockFirstRows[blockIndex] + rowInBlock;
+        long target = Math.min(rowCount, row + rows);
+        seek(target);
+        return target - row;
+    }
+
+    public long rowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public long tid() {
+        return tid;
+    }
+
+    @Override
+    public int[] items() {
+        return Arrays.copyOf(items, itemCount);
+    }
+
+    @Override
+    public double tw() {
+        return tw;
+    }
+
+    @Override
+    public ItemDictionary dictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public void close() throws IOException {
+        block = null;
+        channel.close();
+    }
+
+    private void load(int b) throws IOException {
+        long end = b + 1 < blockOffsets.length ? blockOffsets[b + 1] : footerOffset;
+        block = channel.map(FileChannel.MapMode.READ_ONLY, blockOffsets[b], end - blockOffsets[b]);
+        blockIndex = b;
+        blockRows = block.getInt(0);
+        rowInBlock = 0;
+        tidCursor = ColumnarTransactionWriter.BLOCK_HEADER;
+        twCursor = block.getInt(4);
+        lengthCursor = block.getInt(8);
+        itemCursor = block.getInt(12);
+    }
+
+    // Reads the varint at position into varint and returns the position after it
+    private int readVarLong(int position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = block.get(position++);
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        varint = value;
+        return position;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+            // keeps reading until the buffer is full or the file ends
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
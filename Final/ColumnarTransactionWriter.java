@@ -0,0 +1,186 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Writes transactions in the binary columnar format. The file is
+//   int MAGIC, int VERSION
+//   blocks of up to BLOCK_ROWS rows, each laid out column by column:
+//     int rows, int twOffset, int lengthOffset, int itemOffset (offsets from the block start)
+//     TID column:    varint first TID, then zigzag varint deltas
+//     tw column:     one double per row
+//     length column: varint item count per row
+//     item column:   per row, ascending item ids as varint deltas
+//   footer: the item dictionary (int size, then per item a UTF-8 name and its weight),
+//     long rowCount, int blockCount, then per block its file offset and first row
+//   long footer offset, int MAGIC
+// Rows can only be appended, so the dictionary and block table go at the end and are found from there.
+// Items are stored in ascending id order; the miner sorts every transaction by rank anyway.
+class ColumnarTransactionWriter implements Closeable {
+    static final int MAGIC = 0x46575054; // "FWPT"
+    static final int VERSION = 1;
+    static final int BLOCK_ROWS = 4096;
+    static final int BLOCK_HEADER = 16;
+
+    private final FileChannel channel;
+    private final ItemDictionary dictionary;
+
+    private final long[] tids = new long[BLOCK_ROWS];
+    private final double[] tws = new double[BLOCK_ROWS];
+    private final int[] lengths = new int[BLOCK_ROWS];
+    private int[] items = new int[BLOCK_ROWS * 8];
+    private int rows = 0;
+    private int itemTotal = 0;
+
+    private long[] blockOffsets = new long[16];
+    private long[] blockFirstRows = new long[16];
+    private int blockCount = 0;
+    private long rowCount = 0;
+    private ByteBuffer out = ByteBuffer.allocate(1 << 16);
+
+    // The dictionary is written out on close, so items interned while writing are included
+    public ColumnarTransactionWriter(Path path, ItemDictionary dictionary) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.dictionary = dictionary;
+        ByteBuffer header = ByteBuffer.allocate(8);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        write(header);
+    }
+
+    public void add(long tid, int[] transaction, double tw) throws IOException {
+        if (itemTotal + transaction.length > items.length) {
+            items = Arrays.copyOf(items, Math.max(items.length * 2, itemTotal + transaction.length));
+        }
+        System.arraycopy(transaction, 0, items, itemTotal, transaction.length);
+        Arrays.sort(items, itemTotal, itemTotal + transaction.length);
+        itemTotal += transaction.length;
+        tids[rows] = tid;
+        tws[rows] = tw;
+        lengths[rows] = transaction.length;
+        if (++rows == BLOCK_ROWS) {
+            writeBlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rows > 0) {
+                writeBlock();
+            }
+            long footerOffset = channel.position();
+            out.clear();
+            ensure(4);
+            out.putInt(dictionary.size());
+            for (int id = 0; id < dictionary.size(); id++) {
+                byte[] name = dictionary.name(id).getBytes(StandardCharsets.UTF_8);
+                ensure(12 + name.length);
+                out.putInt(name.length).put(name).putDouble(dictionary.weight(id));
+            }
+            ensure(12 + blockCount * 16 + 12);
+            out.putLong(rowCount).putInt(blockCount);
+            for (int b = 0; b < blockCount; b++) {
+                out.putLong(blockOffsets[b]).putLong(blockFirstRows[b]);
+            }
+            out.putLong(footerOffset).putInt(MAGIC);
+            out.flip();
+            write(out);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (blockCount == blockOffsets.length) {
+            blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+            blockFirstRows = Arrays.copyOf(blockFirstRows, blockCount * 2);
+        }
+        blockOffsets[blockCount] = channel.position();
+        blockFirstRows[blockCount] = rowCount;
+        blockCount++;
+
+        out.clear();
+        ensure(BLOCK_HEADER + rows * 10);
+        out.position(BLOCK_HEADER);
+        putVarLong(tids[0]);
+        for (int r = 1; r < rows; r++) {
+            long delta = tids[r] - tids[r - 1];
+            putVarLong((delta << 1) ^ (delta >> 63));
+        }
+        int twOffset = out.position();
+        ensure(rows * 8);
+        for (int r = 0; r < rows; r++) {
+            out.putDouble(tws[r]);
+        }
+        int lengthOffset = out.position();
+        ensure(rows * 5);
+        for (int r = 0; r < rows; r++) {
+            putVarLong(lengths[r]);
+        }
+        int itemOffset = out.position();
+        ensure(itemTotal * 5);
+        int k = 0;
+        for (int r = 0; r < rows; r++) {
+            int previous = 0;
+            for (int end = k + lengths[r]; k < end; k++) {
+                putVarLong(items[k] - previous);
+                previous = items[k];
+            }
+        }
+        out.putInt(0, rows).putInt(4, twOffset).putInt(8, lengthOffset).putInt(12, itemOffset);
+        out.flip();
+        write(out);
+
+        rowCount += rows;
+        rows = 0;
+        itemTotal = 0;
+    }
+
+    private void putVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private void ensure(int bytes) {
+        if (out.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes));
+            out.flip();
+            bigger.put(out);
+            out = bigger;
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // Converts a transaction CSV and its weights file: [data.csv weights.csv out.fwpt]
+    public static void main(String[] args) {
+        String dataFile = args.length > 0 ? args[0] : "Custom_data.csv";
+        String weightsFile = args.length > 1 ? args[1] : "Custom_weights.csv";
+        String outFile = args.length > 2 ? args[2] : dataFile.replaceFirst("\\.csv$", "") + ".fwpt";
+
+        ItemDictionary dictionary = ItemDictionary.fromWeights(miningFWPsFromBenmarkDataset.readItemWeights(weightsFile));
+        try (TransactionReader reader = new TransactionReader(Paths.get(dataFile), dictionary);
+             ColumnarTransactionWriter writer = new ColumnarTransactionWriter(Paths.get(outFile), dictionary)) {
+            long rows = 0;
+            while (reader.next()) {
+                writer.add(reader.tid(), reader.items(), reader.tw());
+                rows++;
+            }
+            System.out.println("Wrote " + rows + " transactions to " + outFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
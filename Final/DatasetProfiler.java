@@ -0,0 +1,274 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Profiles a transaction stream in one pass: tw, TTW, per-item ws and, for up to MAX_PAIR_ITEMS
+// items, the ws of every item pair. The caller's thread reads the stream and deals batches to the
+// workers round robin; each worker sums into its own accumulator and the accumulators are merged in
+// worker order at the end, so a given thread count always produces the same sums.
+class DatasetProfiler {
+    static final int BATCH = 4096;
+    // Pairs are kept as a dense triangle per worker: 4096 items take 64 MB each
+    static final int MAX_PAIR_ITEMS = 4096;
+
+    boolean pairs = false;
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    static class Profile {
+        final ItemDictionary dictionary;
+        long transactions = 0;
+        long occurrences = 0;
+        double ttw = 0;
+        double minTw = Double.POSITIVE_INFINITY;
+        double maxTw = Double.NEGATIVE_INFINITY;
+        long[] itemCount = new long[0];
+        double[] itemTw = new double[0];
+        // tw sum of the transactions holding both a < b, at b * (b - 1) / 2 + a; null without pairs
+        double[] pairTw;
+
+        Profile(ItemDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        public double ws(int item) {
+            return item < itemTw.length ? itemTw[item] / ttw : 0;
+        }
+
+        public double ws(int a, int b) {
+            int lo = Math.min(a, b), hi = Math.max(a, b);
+            long slot = (long) hi * (hi - 1) / 2 + lo;
+            return slot < pairTw.length ? pairTw[(int) slot] / ttw : 0;
+        }
+
+        // Items by descending ws, ties by id
+        public int[] itemsByWs() {
+            Integer[] order = new Integer[itemTw.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (x, y) -> {
+                int byWs = Double.compare(itemTw[y], itemTw[x]);
+                return byWs != 0 ? byWs : Integer.compare(x, y);
+            });
+            return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+        }
+
+        // JSON; pairs below pairMinWs are left out
+        public void writeJson(Appendable out, double pairMinWs) throws IOException {
+            out.append("{\n");
+            out.append("  \"transactions\": ").append(Long.toString(transactions)).append(",\n");
+            out.append("  \"items\": ").append(Integer.toString(itemTw.length)).append(",\n");
+            out.append("  \"avgLength\": ").append(number(transactions > 0 ? (double) occurrences / transactions : 0)).append(",\n");
+            out.append("  \"ttw\": ").append(number(ttw)).append(",\n");
+            out.append("  \"tw\": {\"min\": ").append(number(transactions > 0 ? minTw : 0))
+                    .append(", \"max\": ").append(number(transactions > 0 ? maxTw : 0))
+                    .append(", \"mean\": ").append(number(transactions > 0 ? ttw / transactions : 0)).append("},\n");
+            out.append("  \"itemWs\": [");
+            int[] order = itemsByWs();
+            for (int i = 0; i < order.length; i++) {
+                int item = order[i];
+                out.append(i == 0 ? "\n" : ",\n").append("    {\"item\": ").append(string(dictionary.name(item)))
+                        .append(", \"count\": ").append(Long.toString(itemCount[item]))
+                        .append(", \"tw\": ").append(number(itemTw[item]))
+                        .append(", \"ws\": ").append(number(ws(item))).append("}");
+            }
+            out.append("\n  ]");
+            if (pairTw != null) {
+                out.append(",\n  \"pairWs\": [");
+                boolean first = true;
+                for (int b = 1; b < itemTw.length; b++) {
+                    for (int a = 0; a < b; a++) {
+                        double ws = ws(a, b);
+                        if (ws > 0 && ws >= pairMinWs) {
+                            out.append(first ? "\n" : ",\n").append("    {\"items\": [").append(string(dictionary.name(a)))
+                                    .append(", ").append(string(dictionary.name(b))).append("], \"ws\": ").append(number(ws)).append("}");
+                            first = false;
+                        }
+                    }
+                }
+                out.append("\n  ]");
+            }
+            out.append("\n}\n");
+        }
+
+        private static String number(double value) {
+            return Double.isFinite(value) ? Double.toString(value) : "null";
+        }
+
+        private static String string(String value) {
+            return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        }
+    }
+
+    // One batch of transactions, items flattened
+    private static class Batch {
+        int size = 0;
+        int[] offsets = new int[BATCH + 1];
+        int[] items = new int[BATCH * 16];
+        double[] tw = new double[BATCH];
+
+        void add(Transaction t) {
+            int start = offsets[size];
+            if (start + t.items.length > items.length) {
+                items = Arrays.copyOf(items, Math.max(items.length * 2, start + t.items.length));
+            }
+            System.arraycopy(t.items, 0, items, start, t.items.length);
+            tw[size] = t.tw;
+            offsets[++size] = start + t.items.length;
+        }
+    }
+
+    private static final Batch END = new Batch();
+
+    private static class Worker {
+        final QueueWorker<Batch> thread;
+        final boolean pairs;
+        long[] itemCount = new long[0];
+        double[] itemTw = new double[0];
+        double[] pairTw = new double[0];
+
+        Worker(int number, boolean pairs, int items) {
+            this.thread = new QueueWorker<>("profiler-" + number, 2, END, this::accumulate);
+            this.pairs = pairs;
+            grow(items);
+        }
+
+        private void accumulate(Batch batch) {
+            int[] items = batch.items;
+            for (int t = 0; t < batch.size; t++) {
+                double tw = batch.tw[t];
+                int from = batch.offsets[t], to = batch.offsets[t + 1];
+                if (to > from && items[to - 1] >= itemTw.length) {
+                    grow(items[to - 1] + 1);
+                }
+                for (int i = from; i < to; i++) {
+                    int b = items[i];
+                    // Items are sorted, so a repeated item sits next to its first occurrence
+                    if (i > from && b == items[i - 1]) {
+                        continue;
+                    }
+                    itemCount[b]++;
+                    itemTw[b] += tw;
+                    if (pairs) {
+                        int row = b * (b - 1) / 2;
+                        for (int j = from; j < i; j++) {
+                            pairTw[row + items[j]] += tw;
+                        }
+                    }
+                }
+            }
+        }
+
+        private void grow(int items) {
+            if (items <= itemTw.length) {
+                return;
+            }
+            itemCount = Arrays.copyOf(itemCount, items);
+            itemTw = Arrays.copyOf(itemTw, items);
+            if (pairs) {
+                if (items > MAX_PAIR_ITEMS) {
+                    throw new IllegalStateException("Pairwise ws is limited to " + MAX_PAIR_ITEMS + " items");
+                }
+                pairTw = Arrays.copyOf(pairTw, items * (items - 1) / 2);
+            }
+        }
+    }
+
+    public Profile profile(TransactionSource source) throws IOException {
+        ItemDictionary dictionary = source.dictionary();
+        if (pairs && dictionary.size() > MAX_PAIR_ITEMS) {
+            throw new IllegalArgumentException("Pairwise ws is limited to " + MAX_PAIR_ITEMS + " items, the dictionary has " + dictionary.size());
+        }
+        Profile profile = new Profile(dictionary);
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, threads); i++) {
+            Worker worker = new Worker(i, pairs, dictionary.size());
+            worker.thread.start();
+            workers.add(worker);
+        }
+
+        try {
+            int next = 0;
+            Batch batch = new Batch();
+            while (source.next()) {
+                Transaction t = source.transaction();
+                profile.transactions++;
+                profile.occurrences += t.items.length;
+                profile.ttw += t.tw;
+                profile.minTw = Math.min(profile.minTw, t.tw);
+                profile.maxTw = Math.max(profile.maxTw, t.tw);
+                batch.add(t);
+                if (batch.size == BATCH) {
+                    workers.get(next).thread.put(batch);
+                    next = (next + 1) % workers.size();
+                    batch = new Batch();
+                }
+            }
+            if (batch.size > 0) {
+                workers.get(next).thread.put(batch);
+            }
+            for (Worker worker : workers) {
+                worker.thread.finish();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while profiling", e);
+        }
+
+        int items = dictionary.size();
+        profile.itemCount = new long[items];
+        profile.itemTw = new double[items];
+        profile.pairTw = pairs ? new double[items * (items - 1) / 2] : null;
+        for (Worker worker : workers) {
+            if (worker.thread.failure() != null) {
+                throw new IOException("Profiling failed", worker.thread.failure());
+            }
+            for (int i = 0; i < worker.itemTw.length; i++) {
+                profile.itemCount[i] += worker.itemCount[i];
+                profile.itemTw[i] += worker.itemTw[i];
+            }
+            if (pairs) {
+                for (int i = 0; i < worker.pairTw.length; i++) {
+                    profile.pairTw[i] += worker.pairTw[i];
+                }
+            }
+        }
+        return profile;
+    }
+
+    // key=value arguments: data=Custom_data.csv weights=Custom_weights.csv pairs=true pairMinWs=0.1
+    // threads=4 out=profile.json (stdout when omitted). data may also be a .fwpt file.
+    public static void main(String[] args) {
+        DatasetProfiler profiler = new DatasetProfiler();
+        Arguments arguments = new Arguments(args);
+        String data = arguments.get("data", "Custom_data.csv");
+        String weights = arguments.get("weights", "Custom_weights.csv");
+        profiler.pairs = arguments.getBoolean("pairs", profiler.pairs);
+        double pairMinWs = arguments.getDouble("pairMinWs", 0);
+        profiler.threads = arguments.getInt("threads", profiler.threads);
+        String out = arguments.get("out", null);
+        arguments.rejectUnknown();
+
+        long start = System.nanoTime();
+        try (TransactionSource source = miningFWPsFromBenmarkDataset.openTransactions(data, weights)) {
+            Profile profile = profiler.profile(source);
+            if (out == null) {
+                PrintStream stdout = System.out;
+                profile.writeJson(stdout, pairMinWs);
+                stdout.flush();
+            } else {
+                try (Writer writer = Files.newBufferedWriter(Paths.get(out))) {
+                    profile.writeJson(writer, pairMinWs);
+                }
+            }
+            System.err.printf("Profiled %d transactions in %.1f s%n", profile.transactions, (System.nanoTime() - start) / 1e9);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Benchmarks the miner's hot paths on generated datasets:
+//   build      swnTreeConstruction of a whole window
+//   slide      one MaintainingSWNTree slide
+//   intersect  one wlIntersection between the WN-lists of two frequent items
+//   ws         one calculateWs of an FWP of the window
+//   fwpods     one end-to-end FWPODS slide, mining included
+// Parameters take comma separated lists and every combination is run, e.g.
+//   java FWPBenchmark bench=slide,fwpods window=990,5000 items=27,100 avgLength=15 minWs=0.3 seed=42
+// density=d replaces avgLength by d * items. Every run does warmup iterations, then measured ones,
+// each lasting iterationMillis; it reports the mean time per operation with its standard deviation
+// and the bytes the benchmark thread allocated per operation and per second. The same benchmarks
+// run under JMH from jmh/MinerBenchmark.java, built by the jmh profile of the Maven build.
+public class FWPBenchmark {
+    // Transactions generated past the window and fed to the slides, round robin
+    static final int STREAM = 2000;
+
+    interface Operation extends Runnable {
+    }
+
+    // Keeps results reachable so the JIT cannot drop the work producing them
+    static volatile Object sink;
+
+    static class Dataset {
+        final ItemDictionary dictionary;
+        final List<Transaction> window;
+        final List<Transaction> stream;
+        int next = 0;
+
+        Dataset(ItemDictionary dictionary, List<Transaction> window, List<Transaction> stream) {
+            this.dictionary = dictionary;
+            this.window = window;
+            this.stream = stream;
+        }
+
+        Transaction next() {
+            Transaction t = stream.get(next);
+            next = (next + 1) % stream.size();
+            return t;
+        }
+    }
+
+    // The window's tree, tail, index and rank table, built the way main builds them
+    static class Window {
+        final SWNNode root = miningFWPsFromBenmarkDataset.createRoot();
+        final TailRing tail;
+        final WindowIndex index;
+        final ItemRank rank;
+
+        Window(Dataset data) {
+            tail = new TailRing(data.window.size());
+            index = new WindowIndex(data.window.size(), data.dictionary.size());
+            rank = new ItemRank(data.dictionary.size());
+            miningFWPsFromBenmarkDataset.swnTreeConstruction(data.window, root, tail, index, rank);
+        }
+    }
+
+    static Dataset generate(int windowSize, int numItems, int avgLength, long seed) {
+        Random random = new Random(seed);
+        List<String> itemNames = new ArrayList<>();
+        for (int i = 0; i < numItems; i++) {
+            itemNames.addAll(dataFrameForBenmark.generateItemNames(i));
+        }
+        Map<String, Double> itemWeights = dataFrameForBenmark.generateItemWeights(itemNames, random);
+        ItemDictionary dictionary = ItemDictionary.fromWeights(itemWeights);
+
+        List<Transaction> transactions = new ArrayList<>();
+        long tid = 1;
+        for (List<String> names : dataFrameForBenmark.generateTransactions(itemNames, windowSize + STREAM, numItems, avgLength, random)) {
+            int[] items = new int[names.size()];
+            double[] weights = new double[names.size()];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = dictionary.intern(names.get(i));
+                weights[i] = dictionary.weight(items[i]);
+            }
+            Arrays.sort(items);
+            transactions.add(new Transaction(tid++, items, Arrays.stream(weights).average().orElse(0.0)));
+        }
+        return new Dataset(dictionary, transactions.subList(0, windowSize), transactions.subList(windowSize, transactions.size()));
+    }
+
+    static Operation setup(String bench, Dataset data, double minWs) {
+        switch (bench) {
+            case "build":
+                return () -> sink = new Window(data);
+            case "slide": {
+                Window w = new Window(data);
+                return () -> sink = miningFWPsFromBenmarkDataset.MaintainingSWNTree(w.root, data.next(), minWs, w.tail, w.index, w.rank);
+            }
+            case "intersect": {
+                Window w = new Window(data);
+                double ttw = w.index.ttw();
+                CandidateStore I1 = miningFWPsFromBenmarkDataset.generate1FWPs(w.root, minWs, w.index, w.rank, new ArrayList<>());
+                List<int[]> pairs = new ArrayList<>();
+                for (int i = 1; i < I1.size(); i++) {
+                    for (int j = 0; j < i; j++) {
+                        pairs.add(new int[]{i, j});
+                    }
+                }
+                if (pairs.isEmpty()) {
+                    return null;
+                }
+                int[] next = {0};
+                return () -> {
+                    int[] pair = pairs.get(next[0]);
+                    next[0] = (next[0] + 1) % pairs.size();
+                    sink = miningFWPsFromBenmarkDataset.wlIntersection(I1.list(pair[0]), I1.list(pair[1]), ttw, minWs);
+                };
+            }
+            case "ws": {
+                Window w = new Window(data);
+                double ttw = w.index.ttw();
+                List<int[]> fwps = new ArrayList<>();
+                CandidateStore I1 = miningFWPsFromBenmarkDataset.generate1FWPs(w.root, minWs, w.index, w.rank, fwps);
+                miningFWPsFromBenmarkDataset.findFWPs(I1, minWs, fwps, ttw);
+                if (fwps.isEmpty()) {
+                    return null;
+                }
+                int[] next = {0};
+                return () -> {
+                    int[] itemSet = fwps.get(next[0]);
+                    next[0] = (next[0] + 1) % fwps.size();
+                    sink = miningFWPsFromBenmarkDataset.calculateWs(w.index, ttw, itemSet);
+                };
+            }
+            case "fwpods": {
+                Window w = new Window(data);
+                return () -> sink = miningFWPsFromBenmarkDataset.FWPODS(w.root, data.next(), minWs, w.tail, w.index, w.rank, data.dictionary);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown benchmark: " + bench);
+        }
+    }
+
+    // The operation of one benchmark on a freshly generated dataset, null when there is nothing to
+    // measure at this minWs; jmh.MinerBenchmark, outside the default package, calls it by reflection
+    public static Runnable operation(String bench, int windowSize, int numItems, int avgLength, double minWs, long seed) {
+        return setup(bench, generate(windowSize, numItems, avgLength, seed), minWs);
+    }
+
+    // {mean ns/op, stdev ns/op, bytes/op, bytes/s}
+    static double[] measure(Operation op, int warmups, int iterations, long iterationNanos) {
+        // Time checks are spread over chunks of about a millisecond so cheap operations are not dominated by them
+        long t0 = System.nanoTime();
+        op.run();
+        long chunk = Math.max(1, Math.min(1 << 20, 1_000_000 / Math.max(1, System.nanoTime() - t0)));
+
+        double[] nsPerOp = new double[iterations];
+        double bytes = 0, ops = 0, nanos = 0;
+        for (int it = -warmups; it < iterations; it++) {
+            long count = 0;
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                for (long i = 0; i < chunk; i++) {
+                    op.run();
+                }
+                count += chunk;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < iterationNanos);
+            allocated = allocatedBytes() - allocated;
+            if (it >= 0) {
+                nsPerOp[it] = (double) elapsed / count;
+                bytes += allocated;
+                ops += count;
+                nanos += elapsed;
+            }
+        }
+
+        double mean = Arrays.stream(nsPerOp).average().orElse(0);
+        double variance = Arrays.stream(nsPerOp).map(x -> (x - mean) * (x - mean)).sum() / Math.max(1, iterations - 1);
+        return new double[]{mean, Math.sqrt(variance), bytes / ops, bytes / (nanos / 1e9)};
+    }
+
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    static String[] list(String value) {
+        return value.isEmpty() ? new String[0] : value.split(",");
+    }
+
+    public static void main(String[] args) {
+        Arguments arguments = new Arguments(args);
+        String[] benches = list(arguments.get("bench", "build,slide,intersect,ws,fwpods"));
+        String[] windows = list(arguments.get("window", "990"));
+        String[] itemCounts = list(arguments.get("items", "27"));
+        String[] avgLengths = list(arguments.get("avgLength", "15"));
+        String[] densities = list(arguments.get("density", ""));
+        String[] minWsValues = list(arguments.get("minWs", "0.3"));
+        long seed = arguments.getLong("seed", 42);
+        int warmups = arguments.getInt("warmup", 5);
+        int iterations = arguments.getInt("iterations", 10);
+        long iterationNanos = arguments.getLong("iterationMillis", 500) * 1_000_000L;
+        arguments.rejectUnknown();
+
+        System.out.printf("%-10s %7s %6s %6s %7s %6s %14s %12s %14s %12s%n",
+                "Benchmark", "window", "items", "avgLen", "density", "minWs", "us/op", "+- stdev", "alloc B/op", "alloc MB/s");
+        for (String window : windows) {
+            for (String items : itemCounts) {
+                int numItems = Integer.parseInt(items);
+                String[] lengths = densities;
+                boolean byDensity = lengths.length > 0;
+                if (!byDensity) {
+                    lengths = avgLengths;
+                }
+                for (String length : lengths) {
+                    int avgLength = byDensity
+                            ? (int) Math.max(1, Math.round(Double.parseDouble(length) * numItems))
+                            : Integer.parseInt(length);
+                    for (String minWs : minWsValues) {
+                        for (String bench : benches) {
+                            Dataset data = generate(Integer.parseInt(window), numItems, avgLength, seed);
+                            Operation op = setup(bench, data, Double.parseDouble(minWs));
+                            if (op == null) {
+                                System.out.printf("%-10s %7s %6s %6d %7.3f %6s   (nothing to measure at this minWs)%n",
+                                        bench, window, items, avgLength, (double) avgLength / numItems, minWs);
+                                continue;
+                            }
+                            double[] r = measure(op, warmups, iterations, iterationNanos);
+                            System.out.printf("%-10s %7s %6s %6d %7.3f %6s %14.3f %12.3f %14.1f %12.1f%n",
+                                    bench, window, items, avgLength, (double) avgLength / numItems, minWs,
+                                    r[0] / 1e3, r[1] / 1e3, r[2], r[3] / (1 << 20));
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,317 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Mines a window on worker processes. The coordinator owns ingestion and the window: it batches
+// the arrivals like SlideBatcher, and every slide it ships the batch and the number of evicted
+// transactions to each FWPWorker. The workers keep replicas of the SWN-tree and each mines its
+// share of the top-level prefix classes; the coordinator puts the classes back in the order the
+// single-process miner finds them, so a window's FWPs come out exactly as they would from
+// SlideBatcher. Workers connect to the coordinator, so they may run on this machine or others.
+class FWPCoordinator implements Closeable {
+    private final int windowSize;
+    private final double minWs;
+    private final ItemDictionary dictionary;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final ResultSink sink;
+
+    private final ServerSocket server;
+    private final List<Socket> sockets = new ArrayList<>();
+    private final List<DataInputStream> inputs = new ArrayList<>();
+    private final List<DataOutputStream> outputs = new ArrayList<>();
+    private final List<Process> spawned = new ArrayList<>();
+    // Mining time every worker reported, summed over the slides
+    private long[] workerNanos = new long[0];
+
+    // Only the window is kept, so the coordinator can fill a replica and knows what each slide evicts
+    private final Deque<Transaction> window;
+    private final List<Transaction> batch = new ArrayList<>();
+    private long firstArrival;
+    private long slides = 0;
+    private boolean filled = false;
+
+    // Listens on bindAddress:port, 0 for any free port. maxDelayMillis <= 0 turns the time trigger off.
+    public FWPCoordinator(int windowSize, double minWs, ItemDictionary dictionary, int batchSize, long maxDelayMillis, ResultSink sink,
+                          String bindAddress, int port) throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1: " + batchSize);
+        }
+        this.windowSize = windowSize;
+        this.minWs = minWs;
+        this.dictionary = dictionary;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelayMillis > 0 ? maxDelayMillis * 1_000_000L : Long.MAX_VALUE;
+        this.sink = sink;
+        this.window = new ArrayDeque<>(windowSize);
+        this.server = new ServerSocket();
+        server.bind(new InetSocketAddress(InetAddress.getByName(bindAddress), port));
+    }
+
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    // Starts count FWPWorker processes on this machine, with this JVM's class path, pointed at
+    // this coordinator; workerArgs go on their command lines as they are
+    public void spawnWorkers(int count, List<String> workerArgs) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        InetAddress bound = server.getInetAddress();
+        for (int i = 0; i < count; i++) {
+            List<String> command = new ArrayList<>();
+            command.add(java);
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add("FWPWorker");
+            command.add("host=" + (bound.isAnyLocalAddress() ? InetAddress.getLoopbackAddress() : bound).getHostAddress());
+            command.add("port=" + port());
+            command.addAll(workerArgs);
+            spawned.add(new ProcessBuilder(command).inheritIO().start());
+        }
+    }
+
+    // Waits until count workers have connected, at most timeoutMillis for each, and numbers them
+    // in the order they came
+    public void acceptWorkers(int count, long timeoutMillis) throws IOException {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one worker is needed: " + count);
+        }
+        server.setSoTimeout((int) Math.min(Integer.MAX_VALUE, timeoutMillis));
+        for (int part = 0; part < count; part++) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (SocketTimeoutException e) {
+                throw new IOException("Only " + part + " of " + count + " workers connected to port " + port(), e);
+            }
+            socket.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            out.writeInt(WorkerProtocol.MAGIC);
+            out.writeInt(WorkerProtocol.VERSION);
+            out.writeInt(part);
+            out.writeInt(count);
+            out.writeInt(windowSize);
+            out.writeDouble(minWs);
+            out.writeInt(dictionary.size());
+            out.flush();
+            sockets.add(socket);
+            outputs.add(out);
+            inputs.add(new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16)));
+        }
+        workerNanos = new long[count];
+    }
+
+    // Returns the FWPs of the window if this transaction completed a batch, otherwise null
+    public List<int[]> offer(Transaction transaction) throws IOException {
+        if (!filled) {
+            // The first window is built on every replica but not mined, as in the single-process miner
+            window.addLast(transaction);
+            if (window.size() == windowSize) {
+                broadcastFill();
+            }
+            return null;
+        }
+        if (batch.isEmpty()) {
+            firstArrival = System.nanoTime();
+        }
+        batch.add(transaction);
+        return batch.size() >= batchSize ? flush() : poll();
+    }
+
+    // For callers with no arrivals to report: flushes the pending batch once it is due
+    public List<int[]> poll() throws IOException {
+        if (!batch.isEmpty() && System.nanoTime() - firstArrival >= maxDelayNanos) {
+            return flush();
+        }
+        return null;
+    }
+
+    public List<int[]> flush() throws IOException {
+        if (batch.isEmpty()) {
+            return null;
+        }
+        int evicted = Math.max(0, window.size() + batch.size() - windowSize);
+        slides++;
+        // Every worker gets the slide before any answer is read, so they all mine at once
+        for (DataOutputStream out : outputs) {
+            out.writeByte(WorkerProtocol.SLIDE);
+            out.writeLong(slides);
+            out.writeInt(evicted);
+            WorkerProtocol.writeTransactions(out, batch);
+            out.flush();
+        }
+        for (int i = 0; i < evicted; i++) {
+            window.pollFirst();
+        }
+        for (Transaction t : batch) {
+            window.addLast(t);
+        }
+        while (window.size() > windowSize) {
+            window.pollFirst();
+        }
+
+        // Classes come back keyed by where the sequential findFWPs would have mined them
+        List<int[]> keys = new ArrayList<>();
+        List<List<int[]>> classes = new ArrayList<>();
+        double ttw = 0;
+        for (int part = 0; part < inputs.size(); part++) {
+            DataInputStream in = inputs.get(part);
+            long slide;
+            try {
+                slide = in.readLong();
+            } catch (IOException e) {
+                throw new IOException("Worker " + part + " failed on slide " + slides, e);
+            }
+            if (slide != slides) {
+                throw new IOException("Worker " + part + " answered slide " + slide + " instead of " + slides);
+            }
+            double workerTtw = in.readDouble();
+            if (part == 0) {
+                ttw = workerTtw;
+            }
+            workerNanos[part] += in.readLong();
+            int count = in.readInt();
+            for (int c = 0; c < count; c++) {
+                keys.add(new int[]{in.readInt(), classes.size()});
+                classes.add(WorkerProtocol.readItemSets(in));
+            }
+        }
+        keys.sort((a, b) -> Integer.compare(b[0], a[0]));
+        List<int[]> fwps = new ArrayList<>();
+        for (int[] key : keys) {
+            fwps.addAll(classes.get(key[1]));
+        }
+
+        if (sink != null) {
+            sink.accept(new WindowResult(slides, batch.get(batch.size() - 1).tid, ttw, fwps));
+        }
+        batch.clear();
+        return fwps;
+    }
+
+    private void broadcastFill() throws IOException {
+        List<Transaction> first = new ArrayList<>(window);
+        for (DataOutputStream out : outputs) {
+            out.writeByte(WorkerProtocol.FILL);
+            WorkerProtocol.writeTransactions(out, first);
+            out.flush();
+        }
+        filled = true;
+    }
+
+    public long slides() {
+        return slides;
+    }
+
+    public int pending() {
+        return batch.size();
+    }
+
+    // Nanoseconds each worker spent sliding and mining, to see how evenly the classes split
+    public long[] workerNanos() {
+        return workerNanos.clone();
+    }
+
+    // Tells the workers to stop and waits for the ones this coordinator started; pending
+    // arrivals are dropped, flush() first to mine them
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (int part = 0; part < outputs.size(); part++) {
+            try {
+                outputs.get(part).writeByte(WorkerProtocol.END);
+                outputs.get(part).flush();
+                sockets.get(part).close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        server.close();
+        for (Process process : spawned) {
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroy();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // key=value arguments: data=Custom_data.csv weights=Custom_weights.csv window=990 minWs=0.3
+    // batch=1 maxDelay=0 (ms) workers=2 spawn=true bind=127.0.0.1 port=0 results=Custom_fwps.txt
+    // (binary when it ends in .fwpr) and, for spawned workers, pooled=false offHeap=false threads=1.
+    // With spawn=false the coordinator prints its port and waits for workers started by hand,
+    // e.g. java FWPWorker host=<coordinator> port=<port> on other machines with bind=0.0.0.0.
+    public static void main(String[] args) throws IOException {
+        Arguments arguments = new Arguments(args);
+        String dataFile = arguments.get("data", "Custom_data.csv");
+        String weightsFile = arguments.get("weights", "Custom_weights.csv");
+        String resultsFile = arguments.get("results", "Custom_fwps.txt");
+        int windowSize = arguments.getInt("window", 990);
+        double minWs = arguments.getDouble("minWs", 0.3);
+        int batchSize = arguments.getInt("batch", 1);
+        long maxDelayMillis = arguments.getLong("maxDelay", 0);
+        int workers = arguments.getInt("workers", 2);
+        boolean spawn = arguments.getBoolean("spawn", true);
+        String bind = arguments.get("bind", "127.0.0.1");
+        int port = arguments.getInt("port", 0);
+        long acceptMillis = arguments.getLong("acceptTimeout", 60_000);
+        // Passed on to spawned workers as they are
+        List<String> workerArgs = new ArrayList<>();
+        for (String key : new String[]{"pooled", "offHeap", "threads"}) {
+            if (arguments.has(key)) {
+                workerArgs.add(key + "=" + arguments.get(key, null));
+            }
+        }
+        arguments.rejectUnknown();
+
+        long start = System.nanoTime();
+        try (TransactionSource reader = miningFWPsFromBenmarkDataset.openTransactions(dataFile, weightsFile);
+             ResultSink sink = new AsyncResultSink(resultsFile.endsWith(".fwpr")
+                     ? new BinaryResultSink(Paths.get(resultsFile), reader.dictionary())
+                     : new TextResultSink(Paths.get(resultsFile), reader.dictionary()), 64);
+             FWPCoordinator coordinator = new FWPCoordinator(windowSize, minWs, reader.dictionary(), batchSize, maxDelayMillis, sink, bind, port)) {
+            if (spawn) {
+                coordinator.spawnWorkers(workers, workerArgs);
+            } else {
+                System.out.println("Waiting for " + workers + " workers on port " + coordinator.port());
+            }
+            coordinator.acceptWorkers(workers, acceptMillis);
+
+            long fwps = 0;
+            while (reader.next()) {
+                List<int[]> window = coordinator.offer(reader.transaction());
+                if (window != null) {
+                    fwps += window.size();
+                }
+            }
+            List<int[]> last = coordinator.flush();
+            if (last != null) {
+                fwps += last.size();
+            }
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d slides, %d FWPs on %d workers in %.1f s%n", coordinator.slides(), fwps, workers, seconds);
+            long[] nanos = coordinator.workerNanos();
+            for (int part = 0; part < nanos.length; part++) {
+                System.out.printf("Worker %d: %.1f s sliding and mining%n", part, nanos[part] / 1e9);
+            }
+        }
+    }
+}
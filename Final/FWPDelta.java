@@ -0,0 +1,25 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// What one slide changed in the FWPs of the window. changed holds the FWPs that stayed
+// frequent but whose weight moved because a transaction containing them came or went;
+// every other ws only moves with ttw.
+class FWPDelta {
+    final double ttw;
+    final List<int[]> added = new ArrayList<>();
+    final List<int[]> removed = new ArrayList<>();
+    final List<int[]> changed = new ArrayList<>();
+
+    public FWPDelta(double ttw) {
+        this.ttw = ttw;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "FWPDelta(ttw=" + ttw + ", added=" + added.size() + ", removed=" + removed.size() + ", changed=" + changed.size() + ")";
+    }
+}
@@ -0,0 +1,89 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+// Mines one equivalence class on a ForkJoinPool. Each prefix I_s[i] of the class becomes
+// its own subtask that builds and mines the next class; small classes stay sequential.
+// Every task collects into its own list and the lists are joined in the order the
+// sequential findFWPs would have produced them.
+class FWPMiningTask extends RecursiveTask<List<int[]>> {
+    private static final long serialVersionUID = 1L;
+
+    private final CandidateStore itemSets;
+    private final double minWs;
+    private final double windowTTW;
+    private final int threshold;
+    // The forking slide's metrics counters, which the pool thread counts against while it runs
+    private final MinerMetrics.SlideCounters counters;
+
+    public FWPMiningTask(CandidateStore itemSets, double minWs, double windowTTW, int threshold) {
+        this.itemSets = itemSets;
+        this.minWs = minWs;
+        this.windowTTW = windowTTW;
+        this.threshold = threshold;
+        this.counters = MinerMetrics.counters();
+    }
+
+    @Override
+    protected List<int[]> compute() {
+        if (counters == null) {
+            return mine();
+        }
+        MinerMetrics.SlideCounters outer = MinerMetrics.adopt(counters);
+        try {
+            return mine();
+        } finally {
+            MinerMetrics.adopt(outer);
+        }
+    }
+
+    private List<int[]> mine() {
+        List<int[]> fwps = new ArrayList<>();
+        if (itemSets.size() < threshold) {
+            miningFWPsFromBenmarkDataset.findFWPs(itemSets, minWs, fwps, windowTTW);
+            return fwps;
+        }
+        List<PrefixTask> prefixes = new ArrayList<>();
+        for (int i = itemSets.size() - 1; i > 0; i--) {
+            PrefixTask prefix = new PrefixTask(i);
+            prefix.fork();
+            prefixes.add(prefix);
+        }
+        for (PrefixTask prefix : prefixes) {
+            fwps.addAll(prefix.join());
+        }
+        return fwps;
+    }
+
+    private class PrefixTask extends RecursiveTask<List<int[]>> {
+        private static final long serialVersionUID = 1L;
+
+        private final int i;
+
+        PrefixTask(int i) {
+            this.i = i;
+        }
+
+        @Override
+        protected List<int[]> compute() {
+            if (counters == null) {
+                return extend();
+            }
+            MinerMetrics.SlideCounters outer = MinerMetrics.adopt(counters);
+            try {
+                return extend();
+            } finally {
+                MinerMetrics.adopt(outer);
+            }
+        }
+
+        private List<int[]> extend() {
+            List<int[]> fwps = new ArrayList<>();
+            CandidateStore next = miningFWPsFromBenmarkDataset.extendClass(itemSets, i, minWs, fwps, windowTTW);
+            if (!next.isEmpty()) {
+                fwps.addAll(new FWPMiningTask(next, minWs, windowTTW, threshold).compute());
+            }
+            return fwps;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// One FWPODS slide as a JFR event: the event's duration is the whole slide and the phase fields
+// add up the time each phase took across the batch. Recorded only while MinerMetrics is installed.
+@Name("fwp.Slide")
+@Label("FWP Slide")
+@Category({"FWP Miner"})
+@Description("One window slide of the FWP miner: tree maintenance and mining")
+@StackTrace(false)
+class FWPSlideEvent extends jdk.jfr.Event {
+    @Label("Batch Size")
+    int batch;
+
+    @Label("Insert")
+    @Description("Sorting and inserting the new transactions")
+    @Timespan
+    long insertNanos;
+
+    @Label("Relabel")
+    @Description("Pre/pos renumbering, including full rebuilds")
+    @Timespan
+    long relabelNanos;
+
+    @Label("Evict")
+    @Timespan
+    long evictNanos;
+
+    @Label("1-FWP Scan")
+    @Timespan
+    long scanNanos;
+
+    @Label("WN-List Build")
+    @Timespan
+    long wnListNanos;
+
+    @Label("Mine")
+    @Description("Recursive mining, or the incremental miner's update")
+    @Timespan
+    long mineNanos;
+
+    @Label("Tree Nodes")
+    long nodes;
+
+    @Label("Tail Size")
+    long tailSize;
+
+    @Label("WN-Lists")
+    long wnLists;
+
+    @Label("WN-List Entries")
+    long wnListEntries;
+
+    @Label("Longest WN-List")
+    long maxWnList;
+
+    @Label("Intersections")
+    long intersections;
+
+    @Label("Pruned Intersections")
+    @Description("Intersections abandoned once the bound s fell below minWS")
+    long pruned;
+
+    @Label("FWPs")
+    long fwps;
+}
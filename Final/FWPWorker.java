@@ -0,0 +1,208 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// One worker of a partitioned miner. It keeps a full replica of the window's SWN-tree, fed by the
+// coordinator's slides, and mines only its share of the top-level prefix classes: findFWPs mines
+// the class of each I1[i] from I1[i]'s WN-list and those of the items before it alone, so the
+// classes can be mined apart and the coordinator only has to put them back in order. Every
+// replica sees the same transactions in the same order, so all workers build the same I1 and
+// agree on the split without talking to each other.
+class FWPWorker {
+    private final int part;
+    private final int parts;
+    private final double minWs;
+    private final WindowIndex index;
+    private final ItemRank rank;
+    // Either the object tree and its tail, or a pooled tree
+    private final SWNNode root;
+    private final TailRing tail;
+    private final PooledSWNTree pooled;
+    // Sequential, or parallel to mine the worker's classes on a pool of its own
+    private final MiningOptions options;
+
+    public FWPWorker(int part, int parts, int windowSize, double minWs, int itemCount, boolean pooledTree, boolean offHeap, MiningOptions options) {
+        this.part = part;
+        this.parts = parts;
+        this.minWs = minWs;
+        this.index = new WindowIndex(windowSize, itemCount);
+        this.rank = new ItemRank(itemCount);
+        if (pooledTree || offHeap) {
+            this.root = null;
+            this.tail = null;
+            this.pooled = new PooledSWNTree(windowSize, windowSize * 4, offHeap);
+        } else {
+            this.root = miningFWPsFromBenmarkDataset.createRoot();
+            this.tail = new TailRing(windowSize);
+            this.pooled = null;
+        }
+        this.options = options;
+    }
+
+    public void fill(List<Transaction> window) {
+        if (pooled != null) {
+            pooled.build(window, index, rank);
+        } else {
+            miningFWPsFromBenmarkDataset.swnTreeConstruction(window, root, tail, index, rank);
+        }
+    }
+
+    // Slides the replica by the batch and mines this worker's classes of the new window, each
+    // class's FWPs in a list of their own under the class key
+    public void slide(List<Transaction> batch, int evicted, List<Integer> keys, List<List<int[]>> classes) throws IOException {
+        // The coordinator's window decides what leaves; a replica that disagrees has lost step
+        int expected = Math.max(0, index.size() + batch.size() - index.capacity());
+        if (evicted != expected) {
+            throw new IOException("Replica of part " + part + " would evict " + expected + " transactions, the coordinator evicted " + evicted);
+        }
+        CandidateStore I1;
+        List<int[]> singles = new ArrayList<>();
+        if (pooled != null) {
+            pooled.slide(batch, minWs, index, rank);
+            I1 = miningFWPsFromBenmarkDataset.generate1FWPs(pooled, minWs, index, rank, singles);
+        } else {
+            SWNNode tree = miningFWPsFromBenmarkDataset.MaintainingSWNTree(root, batch, minWs, tail, index, rank);
+            I1 = miningFWPsFromBenmarkDataset.generate1FWPs(tree, minWs, index, rank, singles);
+        }
+        mine(I1, assign(I1, parts), part, minWs, index.ttw(), options, keys, classes, singles);
+    }
+
+    public double ttw() {
+        return index.ttw();
+    }
+
+    // Owner of every top-level class. Classes are handed out largest first, each to the part with
+    // the least work so far, where the work of class i is the length of the WN-lists its first
+    // joins walk; the 1-FWPs, class I1.size(), go to part 0.
+    static int[] assign(CandidateStore I1, int parts) {
+        int[] owner = new int[I1.size() + 1];
+        long[] load = new long[parts];
+        long below = 0;
+        long[] cost = new long[I1.size()];
+        for (int i = 0; i < I1.size(); i++) {
+            long size = I1.list(i).size;
+            cost[i] = i * size + below;
+            below += size;
+        }
+        Integer[] order = new Integer[I1.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> cost[a] != cost[b] ? Long.compare(cost[b], cost[a]) : Integer.compare(b, a));
+        for (int i : order) {
+            int least = 0;
+            for (int p = 1; p < parts; p++) {
+                if (load[p] < load[least]) {
+                    least = p;
+                }
+            }
+            owner[i] = least;
+            load[least] += cost[i];
+        }
+        owner[I1.size()] = 0;
+        return owner;
+    }
+
+    // Mines the classes owner gives to part. The keys come out in the order the sequential
+    // findFWPs visits the classes, so the coordinator rebuilds its output by sorting on them.
+    static void mine(CandidateStore I1, int[] owner, int part, double minWs, double windowTTW, MiningOptions options,
+                     List<Integer> keys, List<List<int[]>> classes, List<int[]> singles) {
+        if (owner[I1.size()] == part) {
+            keys.add(I1.size());
+            classes.add(singles);
+        }
+        for (int i = I1.size() - 1; i > 0; i--) {
+            if (owner[i] != part) {
+                continue;
+            }
+            List<int[]> fwps = new ArrayList<>();
+            CandidateStore next = miningFWPsFromBenmarkDataset.extendClass(I1, i, minWs, fwps, windowTTW);
+            if (!next.isEmpty()) {
+                if (options.pool != null) {
+                    fwps.addAll(options.pool.invoke(new FWPMiningTask(next, minWs, windowTTW, options.parallelThreshold)));
+                } else {
+                    miningFWPsFromBenmarkDataset.findFWPs(next, minWs, fwps, windowTTW);
+                }
+            }
+            keys.add(i);
+            classes.add(fwps);
+        }
+    }
+
+    // Connects to the coordinator and serves it until it sends END
+    public static void serve(String host, int port, boolean pooledTree, boolean offHeap, int threads) throws IOException {
+        MiningOptions options = threads > 1 ? MiningOptions.parallel(new ForkJoinPool(threads)) : MiningOptions.sequential();
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            if (in.readInt() != WorkerProtocol.MAGIC) {
+                throw new IOException(host + ":" + port + " is not an FWP coordinator");
+            }
+            int version = in.readInt();
+            if (version != WorkerProtocol.VERSION) {
+                throw new IOException("Unsupported coordinator protocol version " + version);
+            }
+            int part = in.readInt();
+            int parts = in.readInt();
+            int windowSize = in.readInt();
+            double minWs = in.readDouble();
+            int itemCount = in.readInt();
+            FWPWorker worker = new FWPWorker(part, parts, windowSize, minWs, itemCount, pooledTree, offHeap, options);
+
+            while (true) {
+                byte type = in.readByte();
+                if (type == WorkerProtocol.END) {
+                    return;
+                } else if (type == WorkerProtocol.FILL) {
+                    worker.fill(WorkerProtocol.readTransactions(in));
+                } else if (type == WorkerProtocol.SLIDE) {
+                    long slide = in.readLong();
+                    int evicted = in.readInt();
+                    List<Transaction> batch = WorkerProtocol.readTransactions(in);
+                    long start = System.nanoTime();
+                    List<Integer> keys = new ArrayList<>();
+                    List<List<int[]>> classes = new ArrayList<>();
+                    worker.slide(batch, evicted, keys, classes);
+                    long nanos = System.nanoTime() - start;
+
+                    out.writeLong(slide);
+                    out.writeDouble(worker.ttw());
+                    out.writeLong(nanos);
+                    out.writeInt(keys.size());
+                    for (int c = 0; c < keys.size(); c++) {
+                        out.writeInt(keys.get(c));
+                        WorkerProtocol.writeItemSets(out, classes.get(c));
+                    }
+                    out.flush();
+                } else {
+                    throw new IOException("Unknown message type " + type);
+                }
+            }
+        } finally {
+            if (options.pool != null) {
+                options.pool.shutdown();
+            }
+        }
+    }
+
+    // key=value arguments: host=127.0.0.1 port=7070 pooled=false offHeap=false threads=1.
+    // Window size and minWs come from the coordinator.
+    public static void main(String[] args) throws IOException {
+        Arguments arguments = new Arguments(args);
+        String host = arguments.get("host", "127.0.0.1");
+        int port = arguments.getInt("port", 7070);
+        boolean pooledTree = arguments.getBoolean("pooled", false);
+        boolean offHeap = arguments.getBoolean("offHeap", false);
+        int threads = arguments.getInt("threads", 1);
+        arguments.rejectUnknown();
+        serve(host, port, pooledTree, offHeap, threads);
+    }
+}
@@ -0,0 +1,293 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Keeps the FWPs of the window between slides instead of re-mining them. Next to the FWPs it
+// keeps their negative border: the infrequent itemsets whose immediate subsets are all frequent.
+// Every itemset is stored with its raw weight (sum of tw), so only itemsets contained in an
+// inserted or evicted transaction need their weight recomputed from the WindowIndex. The rest
+// only move when minWs * TTW moves past them, which the two weight-ordered sets answer directly.
+class IncrementalFWPMiner {
+    static class Pattern {
+        final int[] items;
+        final int hash;
+        double weight;
+        boolean frequent;
+
+        Pattern(int[] items) {
+            this.items = items;
+            this.hash = Arrays.hashCode(items);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Pattern && Arrays.equals(items, ((Pattern) o).items);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final Comparator<Pattern> BY_WEIGHT = (a, b) -> {
+        int byWeight = Double.compare(a.weight, b.weight);
+        return byWeight != 0 ? byWeight : Arrays.compare(a.items, b.items);
+    };
+
+    private final WindowIndex index;
+    private final double minWs;
+    private final Map<Pattern, Pattern> patterns = new HashMap<>();
+    private final TreeSet<Pattern> frequent = new TreeSet<>(BY_WEIGHT);
+    private final TreeSet<Pattern> border = new TreeSet<>(BY_WEIGHT);
+    // Items whose singleton is frequent: the only ones an itemset can be extended by
+    private final BitSet frequentItems = new BitSet();
+    private double threshold;
+    private FWPDelta lastDelta;
+
+    public IncrementalFWPMiner(WindowIndex index, double minWs) {
+        this.index = index;
+        this.minWs = minWs;
+    }
+
+    // Mines the current window level by level over the index, recording the border on the way
+    public List<int[]> initialize() {
+        patterns.clear();
+        frequent.clear();
+        border.clear();
+        frequentItems.clear();
+        threshold = threshold(index.ttw());
+
+        List<int[]> level = new ArrayList<>();
+        for (int item = 0; item < index.itemCount(); item++) {
+            if (evaluate(new int[]{item}, true).frequent) {
+                level.add(new int[]{item});
+            }
+        }
+        while (!level.isEmpty()) {
+            List<int[]> next = new ArrayList<>();
+            for (int a = 0; a < level.size(); a++) {
+                int[] x = level.get(a);
+                for (int b = a + 1; b < level.size() && samePrefix(x, level.get(b)); b++) {
+                    int[] candidate = Arrays.copyOf(x, x.length + 1);
+                    candidate[x.length] = level.get(b)[x.length - 1];
+                    if (subsetsFrequent(candidate) && evaluate(candidate, true).frequent) {
+                        next.add(candidate);
+                    }
+                }
+            }
+            level = next;
+        }
+        return frequentItemSets();
+    }
+
+    // Call after the window index has taken the slide. inserted and evicted are the transactions
+    // that entered and left the window.
+    public FWPDelta slide(List<int[]> inserted, List<int[]> evicted) {
+        FWPDelta delta = new FWPDelta(index.ttw());
+        threshold = threshold(delta.ttw);
+
+        // Itemsets inside a changed transaction are the only ones whose weight moved; the weights
+        // they had while frequent are kept to report the changes
+        Set<Pattern> reweighed = new HashSet<>();
+        Map<Pattern, Double> before = new HashMap<>();
+        for (List<int[]> transactions : Arrays.asList(inserted, evicted)) {
+            for (int[] transaction : transactions) {
+                int[] sorted = transaction.clone();
+                Arrays.sort(sorted);
+                reweighContained(sorted, 0, new int[0], reweighed, before);
+            }
+        }
+
+        // Frequent itemsets that fell under the threshold leave, and so do border supersets of them
+        List<Pattern> dropped = new ArrayList<>(frequent.headSet(probe(threshold), false));
+        BitSet extendable = (BitSet) frequentItems.clone();
+        for (Pattern p : dropped) {
+            setFrequent(p, false);
+            delta.removed.add(p.items);
+        }
+        for (Pattern p : dropped) {
+            for (Pattern superset : immediateSupersets(p.items, extendable)) {
+                if (!superset.frequent && border.remove(superset)) {
+                    patterns.remove(superset);
+                }
+            }
+        }
+        for (Pattern p : dropped) {
+            if (!subsetsFrequent(p.items)) {
+                border.remove(p);
+                patterns.remove(p);
+            }
+        }
+
+        // Border itemsets that reached the threshold, then whatever their promotion makes reachable
+        Deque<Pattern> promoted = new ArrayDeque<>(border.tailSet(probe(threshold), true));
+        while (!promoted.isEmpty()) {
+            Pattern p = promoted.poll();
+            if (p.frequent || patterns.get(p) != p) {
+                continue;
+            }
+            setFrequent(p, true);
+            delta.added.add(p.items);
+            for (int item = frequentItems.nextSetBit(0); item >= 0; item = frequentItems.nextSetBit(item + 1)) {
+                if (Arrays.binarySearch(p.items, item) >= 0) {
+                    continue;
+                }
+                int[] candidate = with(p.items, item);
+                if (!patterns.containsKey(new Pattern(candidate)) && subsetsFrequent(candidate)) {
+                    Pattern c = evaluate(candidate, false);
+                    if (c.weight >= threshold) {
+                        promoted.add(c);
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<Pattern, Double> entry : before.entrySet()) {
+            Pattern p = entry.getKey();
+            if (p.frequent && patterns.get(p) == p && p.weight != entry.getValue()) {
+                delta.changed.add(p.items);
+            }
+        }
+        lastDelta = delta;
+        return delta;
+    }
+
+    public FWPDelta lastDelta() {
+        return lastDelta;
+    }
+
+    public List<int[]> frequentItemSets() {
+        List<int[]> result = new ArrayList<>(frequent.size());
+        for (Pattern p : frequent) {
+            result.add(p.items);
+        }
+        return result;
+    }
+
+    public double ws(int[] itemSet) {
+        Pattern p = patterns.get(new Pattern(itemSet));
+        return p != null && p.frequent ? p.weight / index.ttw() : 0;
+    }
+
+    private void reweighContained(int[] transaction, int from, int[] prefix, Set<Pattern> reweighed, Map<Pattern, Double> before) {
+        for (int i = from; i < transaction.length; i++) {
+            int[] itemSet = Arrays.copyOf(prefix, prefix.length + 1);
+            itemSet[prefix.length] = transaction[i];
+            Pattern p = patterns.get(new Pattern(itemSet));
+            if (p == null) {
+                // A singleton is never left out, the empty set is always frequent
+                if (itemSet.length == 1) {
+                    evaluate(itemSet, false);
+                }
+                continue;
+            }
+            if (!reweighed.contains(p)) {
+                reweighed.add(p);
+                if (p.frequent) {
+                    before.put(p, p.weight);
+                }
+                TreeSet<Pattern> set = p.frequent ? frequent : border;
+                set.remove(p);
+                p.weight = index.weightedSupport(p.items);
+                set.add(p);
+            }
+            if (p.frequent) {
+                reweighContained(transaction, i + 1, itemSet, reweighed, before);
+            }
+        }
+    }
+
+    // Registers a new itemset with its weight. It goes on the border unless it is frequent and
+    // may be accepted right away; during a slide the promotion pass decides instead.
+    private Pattern evaluate(int[] itemSet, boolean accept) {
+        Pattern p = new Pattern(itemSet);
+        p.weight = index.weightedSupport(itemSet);
+        patterns.put(p, p);
+        border.add(p);
+        if (accept && p.weight >= threshold) {
+            setFrequent(p, true);
+        }
+        return p;
+    }
+
+    private void setFrequent(Pattern p, boolean frequent) {
+        (p.frequent ? this.frequent : border).remove(p);
+        p.frequent = frequent;
+        (frequent ? this.frequent : border).add(p);
+        if (p.items.length == 1) {
+            frequentItems.set(p.items[0], frequent);
+        }
+    }
+
+    private boolean subsetsFrequent(int[] itemSet) {
+        if (itemSet.length == 1) {
+            return true;
+        }
+        for (int skip = 0; skip < itemSet.length; skip++) {
+            Pattern subset = patterns.get(new Pattern(without(itemSet, skip)));
+            if (subset == null || !subset.frequent) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<Pattern> immediateSupersets(int[] itemSet, BitSet items) {
+        List<Pattern> supersets = new ArrayList<>();
+        for (int item = items.nextSetBit(0); item >= 0; item = items.nextSetBit(item + 1)) {
+            if (Arrays.binarySearch(itemSet, item) < 0) {
+                Pattern superset = patterns.get(new Pattern(with(itemSet, item)));
+                if (superset != null) {
+                    supersets.add(superset);
+                }
+            }
+        }
+        return supersets;
+    }
+
+    // Never zero, so an itemset that no window transaction contains is never frequent
+    private double threshold(double ttw) {
+        return Math.max(minWs * ttw, Double.MIN_VALUE);
+    }
+
+    private static Pattern probe(double weight) {
+        Pattern p = new Pattern(new int[0]);
+        p.weight = weight;
+        return p;
+    }
+
+    private static boolean samePrefix(int[] a, int[] b) {
+        for (int i = 0; i < a.length - 1; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] with(int[] itemSet, int item) {
+        int at = -Arrays.binarySearch(itemSet, item) - 1;
+        int[] result = new int[itemSet.length + 1];
+        System.arraycopy(itemSet, 0, result, 0, at);
+        result[at] = item;
+        System.arraycopy(itemSet, at, result, at + 1, itemSet.length - at);
+        return result;
+    }
+
+    private static int[] without(int[] itemSet, int skip) {
+        int[] result = new int[itemSet.length - 1];
+        System.arraycopy(itemSet, 0, result, 0, skip);
+        System.arraycopy(itemSet, skip + 1, result, skip, itemSet.length - skip - 1);
+        return result;
+    }
+}
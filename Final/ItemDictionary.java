@@ -0,0 +1,65 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class ItemDictionary {
+    static final int ROOT = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private double[] weights = new double[16];
+
+    public static ItemDictionary fromWeights(Map<String, Double> itemWeights) {
+        ItemDictionary dictionary = new ItemDictionary();
+        for (Map.Entry<String, Double> entry : itemWeights.entrySet()) {
+            int id = dictionary.intern(entry.getKey());
+            dictionary.weights[id] = entry.getValue();
+        }
+        return dictionary;
+    }
+
+    // Items missing from the weights file get weight 0, like itemWeights.getOrDefault(item, 0.0)
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            ids.put(name, id);
+            names.add(name);
+            if (id == weights.length) {
+                weights = Arrays.copyOf(weights, weights.length * 2);
+            }
+        }
+        return id;
+    }
+
+    public String name(int id) {
+        return id == ROOT ? "root" : names.get(id);
+    }
+
+    public double weight(int id) {
+        return weights[id];
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public int[] encode(String itemsString) {
+        String[] items = itemsString.split(", ");
+        int[] encoded = new int[items.length];
+        for (int i = 0; i < items.length; i++) {
+            encoded[i] = intern(items[i]);
+        }
+        return encoded;
+    }
+
+    public List<String> decode(int[] itemSet) {
+        List<String> decoded = new ArrayList<>(itemSet.length);
+        for (int item : itemSet) {
+            decoded.add(name(item));
+        }
+        return decoded;
+    }
+}
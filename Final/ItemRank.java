@@ -0,0 +1,112 @@
+import java.util.Arrays;
+
+// Global item order used to sort transactions before they go into the SWN-tree:
+// rank 0 is the item with the highest weighted support in the window, ties go to
+// the lower item id. The tree is only valid for the order it was built with, so
+// ranks are frozen between rebuilds and isStale() tells when a rebuild pays off.
+class ItemRank {
+    // Share of the frequent items' ws that may sit out of rank order before a rebuild
+    static final double RANK_DRIFT = 0.25;
+
+    private int[] rank = new int[0];
+    private int[] items = new int[0];
+
+    public ItemRank(int itemCount) {
+        grow(itemCount);
+    }
+
+    public void rerank(WindowIndex index) {
+        grow(index.itemCount());
+        Integer[] order = new Integer[items.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byWeight = Double.compare(index.itemWeight(b), index.itemWeight(a));
+            return byWeight != 0 ? byWeight : Integer.compare(a, b);
+        });
+        for (int r = 0; r < order.length; r++) {
+            items[r] = order[r];
+            rank[order[r]] = r;
+        }
+    }
+
+    public int rank(int item) {
+        if (item >= rank.length) {
+            grow(item + 1);
+        }
+        return rank[item];
+    }
+
+    // The item holding the given rank
+    public int item(int rank) {
+        return items[rank];
+    }
+
+    // Returns a copy of the transaction ordered by ascending rank
+    public int[] sort(int[] transaction) {
+        int[] ranks = new int[transaction.length];
+        for (int i = 0; i < transaction.length; i++) {
+            ranks[i] = rank(transaction[i]);
+        }
+        Arrays.sort(ranks);
+        int[] sorted = new int[ranks.length];
+        for (int i = 0; i < ranks.length; i++) {
+            sorted[i] = items[ranks[i]];
+        }
+        return sorted;
+    }
+
+    public int itemCount() {
+        return items.length;
+    }
+
+    // Takes over a rank table saved from another miner: order[r] is the item holding rank r
+    void restore(int[] order) {
+        items = order.clone();
+        rank = new int[order.length];
+        for (int r = 0; r < order.length; r++) {
+            rank[order[r]] = r;
+        }
+    }
+
+    // The order is stale once the items of ws at least minWs outweigh the lightest of them ranked
+    // higher by more than RANK_DRIFT of their ws in all. Lighter items can never be frequent, so
+    // their order only matters to the tree's shape, and the noise among them never forces a rebuild.
+    public boolean isStale(WindowIndex index, double minWs) {
+        if (index.itemCount() > items.length) {
+            return true;
+        }
+        double floor = minWs * index.ttw();
+        double total = 0;
+        double displaced = 0;
+        double lightest = Double.POSITIVE_INFINITY;
+        for (int r = 0; r < items.length; r++) {
+            double weight = index.itemWeight(items[r]);
+            if (weight < floor) {
+                continue;
+            }
+            total += weight;
+            if (weight > lightest) {
+                displaced += weight - lightest;
+            } else {
+                lightest = weight;
+            }
+        }
+        return displaced > total * RANK_DRIFT;
+    }
+
+    // Items seen for the first time go to the end of the order
+    private void grow(int itemCount) {
+        int old = items.length;
+        if (itemCount <= old) {
+            return;
+        }
+        rank = Arrays.copyOf(rank, itemCount);
+        items = Arrays.copyOf(items, itemCount);
+        for (int item = old; item < itemCount; item++) {
+            rank[item] = item;
+            items[item] = item;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-slide metrics of the miner. While an instance is installed, FWPODS times its phases and
+// records one latency sample per phase per slide, the tree and WN-list gauges of the slide, and the
+// wlIntersection counters; every slide is also committed as an FWPSlideEvent for JFR. With nothing
+// installed the hooks cost one static read. A slide's intersections are counted against that slide
+// alone, also when other miners share the metrics or its mining runs on a pool.
+class MinerMetrics {
+    enum Phase {
+        INSERT("insert"), RELABEL("relabel"), EVICT("evict"), SCAN("scan1"), WNLIST("wnList"), MINE("mine"), SLIDE("slide");
+
+        final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+    }
+
+    private static volatile MinerMetrics active;
+
+    private final LatencyHistogram[] latency = new LatencyHistogram[Phase.values().length];
+    final LongAdder intersections = new LongAdder();
+    final LongAdder pruned = new LongAdder();
+    private long slides = 0;
+
+    // Gauges of the last slide
+    private long nodes, tailSize, wnLists, wnListEntries, maxWnList, slideIntersections, slidePruned, fwps;
+
+    // Phase times of the slide running on this thread; a batch adds up all its transactions
+    private final ThreadLocal<Slide> current = ThreadLocal.withInitial(Slide::new);
+
+    // Counters of the slide this thread mines for. Pool threads adopt those of the task they run.
+    private static final ThreadLocal<SlideCounters> counting = new ThreadLocal<>();
+
+    static class SlideCounters {
+        final LongAdder intersections = new LongAdder();
+        final LongAdder pruned = new LongAdder();
+    }
+
+    private static class Slide {
+        final long[] nanos = new long[Phase.values().length];
+        long start, wnLists, wnListEntries, maxWnList;
+        SlideCounters counters;
+        FWPSlideEvent event;
+    }
+
+    MinerMetrics() {
+        for (int i = 0; i < latency.length; i++) {
+            latency[i] = new LatencyHistogram();
+        }
+    }
+
+    // Installs metrics for every miner in the process; null turns them off again
+    public static void install(MinerMetrics metrics) {
+        active = metrics;
+    }
+
+    public static MinerMetrics active() {
+        return active;
+    }
+
+    // Timestamp for add(), or 0 without metrics so callers can time unconditionally
+    static long start() {
+        return active != null ? System.nanoTime() : 0;
+    }
+
+    // Counters a task forked now should count against, null without metrics
+    static SlideCounters counters() {
+        return active != null ? counting.get() : null;
+    }
+
+    // Counts this thread's intersections against counters; returns the counters it had before
+    static SlideCounters adopt(SlideCounters counters) {
+        SlideCounters previous = counting.get();
+        counting.set(counters);
+        return previous;
+    }
+
+    void countIntersection() {
+        intersections.increment();
+        SlideCounters counters = counting.get();
+        if (counters != null) {
+            counters.intersections.increment();
+        }
+    }
+
+    void countPruned() {
+        pruned.increment();
+        SlideCounters counters = counting.get();
+        if (counters != null) {
+            counters.pruned.increment();
+        }
+    }
+
+    static void add(Phase phase, long start) {
+        MinerMetrics metrics = active;
+        if (metrics != null) {
+            metrics.current.get().nanos[phase.ordinal()] += System.nanoTime() - start;
+        }
+    }
+
+    public void beginSlide() {
+        Slide slide = current.get();
+        Arrays.fill(slide.nanos, 0);
+        slide.wnLists = slide.wnListEntries = slide.maxWnList = 0;
+        slide.counters = new SlideCounters();
+        counting.set(slide.counters);
+        slide.event = new FWPSlideEvent();
+        slide.event.begin();
+        slide.start = System.nanoTime();
+    }
+
+    // WN-lists of the frequent items the mining of this slide starts from
+    void recordWNLists(WNList[] byItem) {
+        Slide slide = current.get();
+        for (WNList list : byItem) {
+            if (list != null) {
+                slide.wnLists++;
+                slide.wnListEntries += list.size;
+                slide.maxWnList = Math.max(slide.maxWnList, list.size);
+            }
+        }
+    }
+
+    public void endSlide(int batch, long nodeCount, int tailSize, int fwpCount) {
+        Slide slide = current.get();
+        slide.nanos[Phase.SLIDE.ordinal()] = System.nanoTime() - slide.start;
+        long slideIntersections = slide.counters.intersections.sum();
+        long slidePruned = slide.counters.pruned.sum();
+        counting.remove();
+
+        synchronized (this) {
+            for (Phase phase : Phase.values()) {
+                latency[phase.ordinal()].record(slide.nanos[phase.ordinal()]);
+            }
+            slides++;
+            nodes = nodeCount;
+            this.tailSize = tailSize;
+            wnLists = slide.wnLists;
+            wnListEntries = slide.wnListEntries;
+            maxWnList = slide.maxWnList;
+            this.slideIntersections = slideIntersections;
+            this.slidePruned = slidePruned;
+            fwps = fwpCount;
+        }
+
+        FWPSlideEvent event = slide.event;
+        event.end();
+        if (event.shouldCommit()) {
+            event.batch = batch;
+            event.insertNanos = slide.nanos[Phase.INSERT.ordinal()];
+            event.relabelNanos = slide.nanos[Phase.RELABEL.ordinal()];
+            event.evictNanos = slide.nanos[Phase.EVICT.ordinal()];
+            event.scanNanos = slide.nanos[Phase.SCAN.ordinal()];
+            event.wnListNanos = slide.nanos[Phase.WNLIST.ordinal()];
+            event.mineNanos = slide.nanos[Phase.MINE.ordinal()];
+            event.nodes = nodeCount;
+            event.tailSize = tailSize;
+            event.wnLists = slide.wnLists;
+            event.wnListEntries = slide.wnListEntries;
+            event.maxWnList = slide.maxWnList;
+            event.intersections = slideIntersections;
+            event.pruned = slidePruned;
+            event.fwps = fwpCount;
+            event.commit();
+        }
+        slide.event = null;
+    }
+
+    public synchronized void writeJson(Appendable out) throws IOException {
+        out.append("{\n");
+        out.append("  \"timestamp\": ").append(Long.toString(System.currentTimeMillis())).append(",\n");
+        out.append("  \"slides\": ").append(Long.toString(slides)).append(",\n");
+        out.append("  \"latencyMicros\": {");
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram h = latency[phase.ordinal()];
+            out.append(phase.ordinal() == 0 ? "\n" : ",\n").append("    \"").append(phase.key).append("\": {")
+                    .append("\"count\": ").append(Long.toString(h.count))
+                    .append(", \"mean\": ").append(micros(h.count > 0 ? (double) h.sum / h.count : 0))
+                    .append(", \"p50\": ").append(micros(h.percentile(50)))
+                    .append(", \"p90\": ").append(micros(h.percentile(90)))
+                    .append(", \"p99\": ").append(micros(h.percentile(99)))
+                    .append(", \"p999\": ").append(micros(h.percentile(99.9)))
+                    .append(", \"max\": ").append(micros(h.max)).append("}");
+        }
+        out.append("\n  },\n");
+        out.append("  \"gauges\": {\"nodes\": ").append(Long.toString(nodes))
+                .append(", \"tailSize\": ").append(Long.toString(tailSize))
+                .append(", \"wnLists\": ").append(Long.toString(wnLists))
+                .append(", \"wnListEntries\": ").append(Long.toString(wnListEntries))
+                .append(", \"maxWnList\": ").append(Long.toString(maxWnList))
+                .append(", \"intersections\": ").append(Long.toString(slideIntersections))
+                .append(", \"pruned\": ").append(Long.toString(slidePruned))
+                .append(", \"fwps\": ").append(Long.toString(fwps)).append("},\n");
+        out.append("  \"counters\": {\"intersections\": ").append(Long.toString(intersections.sum()))
+                .append(", \"pruned\": ").append(Long.toString(pruned.sum())).append("}\n");
+        out.append("}\n");
+    }
+
+    private static String micros(double nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e3);
+    }
+
+    // Rewrites file with a snapshot every periodMillis. The snapshot goes to a sibling file first
+    // and is moved over the old one, so readers never see half a snapshot.
+    public ScheduledExecutorService report(Path file, long periodMillis) {
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "miner-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            try {
+                writeSnapshot(file);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return reporter;
+    }
+
+    public void writeSnapshot(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp)) {
+            writeJson(writer);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Log-linear buckets: exact below 8 ns, then 8 buckets per power of two, so any percentile is
+    // within 12.5% of the true value. It never resizes and recording is a couple of shifts.
+    static class LatencyHistogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB = 1 << SUB_BITS;
+
+        final long[] counts = new long[(64 - SUB_BITS) * SUB];
+        long count = 0;
+        long sum = 0;
+        long max = 0;
+
+        void record(long nanos) {
+            nanos = Math.max(0, nanos);
+            counts[bucket(nanos)]++;
+            count++;
+            sum += nanos;
+            max = Math.max(max, nanos);
+        }
+
+        static int bucket(long value) {
+            if (value < SUB) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB - 1);
+            return (exponent - SUB_BITS + 1) * SUB + sub;
+        }
+
+        // Largest value that lands in the bucket
+        static long upperBound(int bucket) {
+            if (bucket < SUB) {
+                return bucket;
+            }
+            int exponent = bucket / SUB + SUB_BITS - 1;
+            long lower = (long) (SUB + bucket % SUB) << (exponent - SUB_BITS);
+            return lower + (1L << (exponent - SUB_BITS)) - 1;
+        }
+
+        long percentile(double p) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(p / 100 * count));
+            long seen = 0;
+            for (int b = 0; b < counts.length; b++) {
+                seen += counts[b];
+                if (seen >= rank) {
+                    return Math.min(upperBound(b), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The full state of a window miner between two slides, so a restart can carry on from the file
+// instead of re-reading the stream and rebuilding the first window. Everything is taken as it is,
+// never recomputed: the tree keeps its pre/pos codes and weights, the rank table its order and the
+// window index its per-item sums, so the restored miner mines exactly what the original would have.
+//
+// File layout, big-endian:
+//   int MAGIC, int VERSION
+//   int windowSize, long added (transactions consumed), long slides
+//   the dictionary: int size, then per item an int length, the UTF-8 bytes and the double weight
+//   the rank table: int size, then the item of every rank
+//   the window index: int next, int itemTw size and the doubles, then int window size and per
+//     transaction, oldest first: long tid, double tw, int length, the item ids
+//   the tree: int node count, then per node in pre-order: int item, int count, int pre, int pos,
+//     double weight, int number of children
+//   the tail: int size, then per element, oldest first: int pre-order index of its leaf (-1 for
+//     an empty transaction, whose leaf is the root), double tw
+//   int MAGIC again, so a truncated file is refused
+class MinerSnapshot {
+    static final int MAGIC = 0x46575053; // "FWPS"
+    static final int VERSION = 1;
+
+    // An SWN-tree flattened in pre-order, the same for the object and the pooled tree
+    static class TreeImage {
+        // Tail leaf of an empty transaction, which ends at the root
+        static final int ROOT_LEAF = -1;
+
+        int size;
+        int[] item;
+        int[] count;
+        int[] pre;
+        int[] pos;
+        double[] weight;
+        int[] children;
+        // Tail oldest first: pre-order index of the leaf and the tw of each element
+        int[] tailNode;
+        double[] tailTw;
+
+        TreeImage(int size, int tailSize) {
+            this.size = size;
+            item = new int[size];
+            count = new int[size];
+            pre = new int[size];
+            pos = new int[size];
+            weight = new double[size];
+            children = new int[size];
+            tailNode = new int[tailSize];
+            tailTw = new double[tailSize];
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > item.length) {
+                capacity = Math.max(capacity, item.length * 2);
+                item = Arrays.copyOf(item, capacity);
+                count = Arrays.copyOf(count, capacity);
+                pre = Arrays.copyOf(pre, capacity);
+                pos = Arrays.copyOf(pos, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+        }
+
+        // Pre-order lists nodes by ascending pre code, so a leaf is found by its code
+        int indexOf(int preCode) {
+            int i = Arrays.binarySearch(pre, 0, size, preCode);
+            if (i < 0) {
+                throw new IllegalStateException("No node with pre code " + preCode);
+            }
+            return i;
+        }
+    }
+
+    final int windowSize;
+    final long added;
+    final long slides;
+    final ItemDictionary dictionary;
+    final int[] rankOrder;
+    final int next;
+    final double[] itemTw;
+    final List<Transaction> window;
+    private TreeImage tree;
+    // What a pooled capture keeps instead of the image, flattened on first use
+    private PooledSWNTree frozen;
+
+    private MinerSnapshot(int windowSize, long added, long slides, ItemDictionary dictionary, int[] rankOrder,
+                          int next, double[] itemTw, List<Transaction> window, TreeImage tree) {
+        this.windowSize = windowSize;
+        this.added = added;
+        this.slides = slides;
+        this.dictionary = dictionary;
+        this.rankOrder = rankOrder;
+        this.next = next;
+        this.itemTw = itemTw;
+        this.window = window;
+        this.tree = tree;
+    }
+
+    // Copies the state of an object-tree miner; only valid between slides. The tree is flattened
+    // here, on the miner's thread, so the capture pauses the miner for as long as that walk takes.
+    public static MinerSnapshot capture(SWNNode root, TailRing tail, WindowIndex index, ItemRank rank, ItemDictionary dictionary, long slides) {
+        // Sized by a guess and grown while flattening, which is cheaper than counting the tree first
+        TreeImage image = new TreeImage(4 * tail.size() + 16, tail.size());
+        image.size = 0;
+        for (int c = 0; c < root.childList.size(); c++) {
+            image.size = flatten(root.childList.get(c), image, image.size);
+        }
+        for (int i = 0; i < tail.size(); i++) {
+            TailElement element = tail.get(i);
+            image.tailNode[i] = element.node == root ? TreeImage.ROOT_LEAF : image.indexOf(element.node.pre);
+            image.tailTw[i] = element.weight;
+        }
+        return capture(image, index, rank, dictionary, slides);
+    }
+
+    // Copies the state of a pooled-tree miner; only valid between slides. Only the node arrays are
+    // copied, in bulk, and the copy is flattened by whoever first needs the image, as write does.
+    public static MinerSnapshot capture(PooledSWNTree tree, WindowIndex index, ItemRank rank, ItemDictionary dictionary, long slides) {
+        MinerSnapshot snapshot = capture((TreeImage) null, index, rank, dictionary, slides);
+        snapshot.frozen = tree.frozenCopy();
+        return snapshot;
+    }
+
+    // The transactions themselves are immutable, so the window is copied by reference
+    private static MinerSnapshot capture(TreeImage image, WindowIndex index, ItemRank rank, ItemDictionary dictionary, long slides) {
+        Map<String, Double> weights = new LinkedHashMap<>();
+        for (int id = 0; id < dictionary.size(); id++) {
+            weights.put(dictionary.name(id), dictionary.weight(id));
+        }
+        int[] rankOrder = new int[rank.itemCount()];
+        for (int r = 0; r < rankOrder.length; r++) {
+            rankOrder[r] = rank.item(r);
+        }
+        List<Transaction> window = new ArrayList<>(index.size());
+        for (int i = 0; i < index.size(); i++) {
+            window.add(index.transaction(i));
+        }
+        return new MinerSnapshot(index.capacity(), index.added(), slides, ItemDictionary.fromWeights(weights), rankOrder,
+                index.next(), index.itemTws(), window, image);
+    }
+
+    private static int flatten(SWNNode node, TreeImage image, int i) {
+        image.ensureCapacity(i + 1);
+        image.item[i] = node.item;
+        image.count[i] = node.count;
+        image.pre[i] = node.pre;
+        image.pos[i] = node.pos;
+        image.weight[i] = node.weight;
+        image.children[i] = node.childList.size();
+        int next = i + 1;
+        for (int c = 0; c < node.childList.size(); c++) {
+            next = flatten(node.childList.get(c), image, next);
+        }
+        return next;
+    }
+
+    TreeImage image() {
+        if (tree == null) {
+            tree = frozen.image();
+            frozen = null;
+        }
+        return tree;
+    }
+
+    // Written next to the target and moved over it, so a crash mid-write leaves the last good snapshot
+    public void write(Path file) throws IOException {
+        TreeImage tree = image();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(windowSize);
+            out.writeLong(added);
+            out.writeLong(slides);
+
+            out.writeInt(dictionary.size());
+            for (int id = 0; id < dictionary.size(); id++) {
+                byte[] name = dictionary.name(id).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(name.length);
+                out.write(name);
+                out.writeDouble(dictionary.weight(id));
+            }
+
+            out.writeInt(rankOrder.length);
+            for (int item : rankOrder) {
+                out.writeInt(item);
+            }
+
+            out.writeInt(next);
+            out.writeInt(itemTw.length);
+            for (double weight : itemTw) {
+                out.writeDouble(weight);
+            }
+            out.writeInt(window.size());
+            for (Transaction t : window) {
+                out.writeLong(t.tid);
+                out.writeDouble(t.tw);
+                out.writeInt(t.items.length);
+                for (int item : t.items) {
+                    out.writeInt(item);
+                }
+            }
+
+            out.writeInt(tree.size);
+            for (int i = 0; i < tree.size; i++) {
+                out.writeInt(tree.item[i]);
+                out.writeInt(tree.count[i]);
+                out.writeInt(tree.pre[i]);
+                out.writeInt(tree.pos[i]);
+                out.writeDouble(tree.weight[i]);
+                out.writeInt(tree.children[i]);
+            }
+            out.writeInt(tree.tailNode.length);
+            for (int i = 0; i < tree.tailNode.length; i++) {
+                out.writeInt(tree.tailNode[i]);
+                out.writeDouble(tree.tailTw[i]);
+            }
+            out.writeInt(MAGIC);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Maps the file and decodes it in one pass; nothing is sorted or re-ranked
+    public static MinerSnapshot read(Path file) throws IOException {
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a miner snapshot: " + file);
+            }
+            if (in.getInt() != VERSION) {
+                throw new IOException("Unsupported miner snapshot version: " + file);
+            }
+            int windowSize = in.getInt();
+            long added = in.getLong();
+            long slides = in.getLong();
+
+            Map<String, Double> weights = new LinkedHashMap<>();
+            int itemCount = in.getInt();
+            for (int id = 0; id < itemCount; id++) {
+                byte[] name = new byte[in.getInt()];
+                in.get(name);
+                weights.put(new String(name, StandardCharsets.UTF_8), in.getDouble());
+            }
+
+            int[] rankOrder = new int[in.getInt()];
+            for (int r = 0; r < rankOrder.length; r++) {
+                rankOrder[r] = in.getInt();
+            }
+
+            int next = in.getInt();
+            double[] itemTw = new double[in.getInt()];
+            for (int i = 0; i < itemTw.length; i++) {
+                itemTw[i] = in.getDouble();
+            }
+            int windowCount = in.getInt();
+            List<Transaction> window = new ArrayList<>(windowCount);
+            for (int i = 0; i < windowCount; i++) {
+                long tid = in.getLong();
+                double tw = in.getDouble();
+                int[] items = new int[in.getInt()];
+                for (int j = 0; j < items.length; j++) {
+                    items[j] = in.getInt();
+                }
+                window.add(new Transaction(tid, items, tw));
+            }
+
+            TreeImage image = new TreeImage(in.getInt(), 0);
+            for (int i = 0; i < image.size; i++) {
+                image.item[i] = in.getInt();
+                image.count[i] = in.getInt();
+                image.pre[i] = in.getInt();
+                image.pos[i] = in.getInt();
+                image.weight[i] = in.getDouble();
+                image.children[i] = in.getInt();
+            }
+            int tailSize = in.getInt();
+            image.tailNode = new int[tailSize];
+            image.tailTw = new double[tailSize];
+            for (int i = 0; i < tailSize; i++) {
+                image.tailNode[i] = in.getInt();
+                image.tailTw[i] = in.getDouble();
+                if (image.tailNode[i] < TreeImage.ROOT_LEAF || image.tailNode[i] >= image.size) {
+                    throw new IOException("Corrupt miner snapshot: " + file);
+                }
+            }
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Corrupt miner snapshot: " + file);
+            }
+            return new MinerSnapshot(windowSize, added, slides, ItemDictionary.fromWeights(weights), rankOrder, next, itemTw, window, image);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated miner snapshot: " + file, e);
+        }
+    }
+
+    // The window index as it was, slot for slot
+    public WindowIndex restoreIndex() {
+        WindowIndex index = new WindowIndex(windowSize, itemTw.length);
+        index.restore(window, next, itemTw, added);
+        return index;
+    }
+
+    public ItemRank restoreRank() {
+        ItemRank rank = new ItemRank(0);
+        rank.restore(rankOrder);
+        return rank;
+    }
+
+    // Rebuilds the object tree under root, which must be empty, and fills the empty tail
+    public void restoreTree(SWNNode root, TailRing tail) {
+        TreeImage tree = image();
+        SWNNode[] nodes = new SWNNode[tree.size];
+        // Stack of the nodes still waiting for children, with how many each still expects
+        SWNNode[] open = new SWNNode[tree.size + 1];
+        int[] expected = new int[tree.size + 1];
+        int depth = 0;
+        open[0] = root;
+        expected[0] = Integer.MAX_VALUE;
+        for (int i = 0; i < tree.size; i++) {
+            while (expected[depth] == 0) {
+                depth--;
+            }
+            SWNNode parent = open[depth];
+            expected[depth]--;
+            SWNNode node = new SWNNode(tree.item[i], tree.weight[i], tree.pre[i], tree.pos[i], parent);
+            node.count = tree.count[i];
+            parent.childList.add(node);
+            nodes[i] = node;
+            open[++depth] = node;
+            expected[depth] = tree.children[i];
+        }
+        root.descendants = tree.size;
+        for (int i = 0; i < tree.tailNode.length; i++) {
+            SWNNode leaf = tree.tailNode[i] == TreeImage.ROOT_LEAF ? root : nodes[tree.tailNode[i]];
+            int length = 0;
+            for (SWNNode node = leaf; node != root; node = node.parent) {
+                length++;
+            }
+            int[] path = new int[length];
+            for (SWNNode node = leaf; node != root; node = node.parent) {
+                path[--length] = node.item;
+            }
+            tail.add(new TailElement(path, leaf, tree.tailTw[i]));
+        }
+    }
+
+    public PooledSWNTree restorePooled(boolean offHeap) {
+        TreeImage tree = image();
+        return PooledSWNTree.restore(tree, windowSize, Math.max(windowSize * 4, tree.size + 1), offHeap);
+    }
+}
@@ -0,0 +1,47 @@
+import java.util.concurrent.ForkJoinPool;
+
+// How FWPODS mines a window once the tree is up to date
+class MiningOptions {
+    // Pool the equivalence classes are mined on; null mines on the calling thread
+    ForkJoinPool pool;
+    // Classes with fewer item sets than this are mined sequentially inside a single task
+    int parallelThreshold = 8;
+    // When set, the FWPs are kept up to date slide by slide instead of mined from the tree
+    IncrementalFWPMiner incremental;
+    // When set, each slide mines the k itemsets of highest ws instead of all those above minWs;
+    // the floor is the collector's own minWs. Top-k mining runs on the calling thread.
+    TopKFWPs topK;
+    // When set, each slide reports only the closed or only the maximal FWPs, pruning the rest while
+    // mining. Closed and maximal mining run on the calling thread.
+    ClosedFWPs closed;
+    // Debug dump of every tail path after each slide; off unless asked for
+    boolean printTail = false;
+
+    public static MiningOptions sequential() {
+        return new MiningOptions();
+    }
+
+    public static MiningOptions parallel(ForkJoinPool pool) {
+        MiningOptions options = new MiningOptions();
+        options.pool = pool;
+        return options;
+    }
+
+    public static MiningOptions topK(TopKFWPs topK) {
+        MiningOptions options = new MiningOptions();
+        options.topK = topK;
+        return options;
+    }
+
+    public static MiningOptions closed(ClosedFWPs closed) {
+        MiningOptions options = new MiningOptions();
+        options.closed = closed;
+        return options;
+    }
+
+    public static MiningOptions incremental(IncrementalFWPMiner miner) {
+        MiningOptions options = new MiningOptions();
+        options.incremental = miner;
+        return options;
+    }
+}
@@ -0,0 +1,173 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Column storage for PooledSWNTree: per node a fixed set of int fields and one double weight,
+// addressed by node id. The heap variant keeps them in two primitive arrays; the direct variant
+// keeps them outside the Java heap in one direct buffer, so a large window costs the collector
+// nothing to scan. Both grow by doubling, which is the only time they allocate.
+abstract class NodeStore {
+    static final int ITEM = 0;
+    static final int COUNT = 1;
+    static final int PRE = 2;
+    static final int POS = 3;
+    static final int PARENT = 4;
+    static final int FIRST_CHILD = 5;
+    static final int LAST_CHILD = 6;
+    static final int NEXT_SIBLING = 7;
+    static final int PREV_SIBLING = 8;
+    static final int INT_FIELDS = 9;
+
+    abstract int getInt(int node, int field);
+
+    abstract void setInt(int node, int field, int value);
+
+    abstract double weight(int node);
+
+    abstract void setWeight(int node, double weight);
+
+    abstract int capacity();
+
+    // Makes room for at least capacity nodes, keeping the existing ones
+    abstract void grow(int capacity);
+
+    abstract long memoryBytes();
+
+    // A store holding a copy of the first count nodes, taken in bulk, for a snapshot to read
+    abstract NodeStore copy(int count);
+
+    static NodeStore create(int capacity, boolean offHeap) {
+        return offHeap ? new DirectNodeStore(capacity) : new HeapNodeStore(capacity);
+    }
+}
+
+class HeapNodeStore extends NodeStore {
+    private int[] ints;
+    private double[] weights;
+
+    HeapNodeStore(int capacity) {
+        ints = new int[Math.max(capacity, 1) * INT_FIELDS];
+        weights = new double[Math.max(capacity, 1)];
+    }
+
+    private HeapNodeStore(int[] ints, double[] weights) {
+        this.ints = ints;
+        this.weights = weights;
+    }
+
+    @Override
+    int getInt(int node, int field) {
+        return ints[node * INT_FIELDS + field];
+    }
+
+    @Override
+    void setInt(int node, int field, int value) {
+        ints[node * INT_FIELDS + field] = value;
+    }
+
+    @Override
+    double weight(int node) {
+        return weights[node];
+    }
+
+    @Override
+    void setWeight(int node, double weight) {
+        weights[node] = weight;
+    }
+
+    @Override
+    int capacity() {
+        return weights.length;
+    }
+
+    @Override
+    void grow(int capacity) {
+        if (capacity > weights.length) {
+            ints = Arrays.copyOf(ints, capacity * INT_FIELDS);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+    }
+
+    @Override
+    long memoryBytes() {
+        return 16 + 4L * ints.length + 16 + 8L * weights.length;
+    }
+
+    @Override
+    NodeStore copy(int count) {
+        return new HeapNodeStore(Arrays.copyOf(ints, count * INT_FIELDS), Arrays.copyOf(weights, count));
+    }
+}
+
+// 48 bytes a node: the int fields, then the weight at an 8-byte aligned offset
+class DirectNodeStore extends NodeStore {
+    private static final int WEIGHT = 40;
+    private static final int STRIDE = 48;
+
+    private ByteBuffer buffer;
+
+    DirectNodeStore(int capacity) {
+        buffer = allocate(Math.max(capacity, 1));
+    }
+
+    private DirectNodeStore(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        if ((long) capacity * STRIDE > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Off-heap node store is limited to " + Integer.MAX_VALUE / STRIDE + " nodes");
+        }
+        return ByteBuffer.allocateDirect(capacity * STRIDE).order(ByteOrder.nativeOrder());
+    }
+
+    @Override
+    int getInt(int node, int field) {
+        return buffer.getInt(node * STRIDE + (field << 2));
+    }
+
+    @Override
+    void setInt(int node, int field, int value) {
+        buffer.putInt(node * STRIDE + (field << 2), value);
+    }
+
+    @Override
+    double weight(int node) {
+        return buffer.getDouble(node * STRIDE + WEIGHT);
+    }
+
+    @Override
+    void setWeight(int node, double weight) {
+        buffer.putDouble(node * STRIDE + WEIGHT, weight);
+    }
+
+    @Override
+    int capacity() {
+        return buffer.capacity() / STRIDE;
+    }
+
+    @Override
+    void grow(int capacity) {
+        if (capacity > capacity()) {
+            ByteBuffer grown = allocate(capacity);
+            grown.put(buffer.duplicate().clear());
+            grown.clear();
+            buffer = grown;
+        }
+    }
+
+    // Only the buffer object is on the heap; the node memory itself is native
+    @Override
+    long memoryBytes() {
+        return buffer.capacity();
+    }
+
+    // The copy keeps the layout but lives on the heap, as it is only read once and then dropped
+    @Override
+    NodeStore copy(int count) {
+        ByteBuffer copy = ByteBuffer.allocate(count * STRIDE).order(ByteOrder.nativeOrder());
+        copy.put(buffer.duplicate().clear().limit(count * STRIDE));
+        copy.clear();
+        return new DirectNodeStore(copy);
+    }
+}
@@ -0,0 +1,567 @@
+import java.util.Arrays;
+import java.util.List;
+
+// SWN-tree kept in a NodeStore instead of one SWNNode object per node. Children hang off their
+// parent as a doubly linked sibling list in insertion order, plus a (parent, item) hash for the
+// lookups, so the pre/pos labelling works exactly as on the object tree. Evicted nodes go on a
+// free list and are reused by the next insert, and the tail is a ring of leaf ids and tw values,
+// so once the pool, the hash and the scratch arrays have grown to the window a slide allocates
+// nothing. A rebuild reads every transaction back from its path instead of keeping a copy.
+class PooledSWNTree {
+    static final int NIL = -1;
+    static final int ROOT = 0;
+
+    private final NodeStore nodes;
+    private int allocated = 1;
+    private int live = 1;
+    private int free = NIL;
+
+    // Open addressing, linear probing: key (parent << 32 | item), value the child's id
+    private long[] childKeys;
+    private int[] childIds;
+    private int childCount = 0;
+
+    // Tail: leaf and tw per window slot, oldest first
+    private final int[] tailLeaf;
+    private final double[] tailTw;
+    private int tailHead = 0;
+    private int tailSize = 0;
+
+    // Reused for sorting arrivals and, during rebuilds, for every path of the window
+    private int[] scratch = new int[64];
+    private int[] offsets;
+    // Leaf of the path the last insertPath went down
+    private int lastLeaf;
+
+    public PooledSWNTree(int windowSize, int expectedNodes, boolean offHeap) {
+        nodes = NodeStore.create(Math.max(expectedNodes, 16), offHeap);
+        int slots = Integer.highestOneBit(Math.max(expectedNodes, 16) * 2 - 1) << 1;
+        childKeys = new long[slots];
+        childIds = new int[slots];
+        Arrays.fill(childIds, NIL);
+        tailLeaf = new int[windowSize];
+        tailTw = new double[windowSize];
+        offsets = new int[windowSize + 1];
+        resetRoot();
+    }
+
+    // A copy of the nodes and the tail, taken in bulk, without the child hash: only image() reads it
+    private PooledSWNTree(PooledSWNTree source) {
+        nodes = source.nodes.copy(source.allocated);
+        allocated = source.allocated;
+        live = source.live;
+        free = source.free;
+        childKeys = new long[0];
+        childIds = new int[0];
+        tailLeaf = source.tailLeaf.clone();
+        tailTw = source.tailTw.clone();
+        tailHead = source.tailHead;
+        tailSize = source.tailSize;
+        offsets = new int[0];
+    }
+
+    // The root owns the whole code range
+    private void resetRoot() {
+        initNode(ROOT, ItemDictionary.ROOT, 0, NIL);
+        nodes.setInt(ROOT, NodeStore.POS, Integer.MAX_VALUE);
+    }
+
+    public int nodeCount() {
+        return live - 1;
+    }
+
+    public int tailSize() {
+        return tailSize;
+    }
+
+    public int capacity() {
+        return tailLeaf.length;
+    }
+
+    public long memoryBytes() {
+        return nodes.memoryBytes() + 16 + 8L * childKeys.length + 16 + 4L * childIds.length
+                + 16 + 4L * tailLeaf.length + 16 + 8L * tailTw.length + 16 + 4L * scratch.length + 16 + 4L * offsets.length;
+    }
+
+    public int item(int node) {
+        return nodes.getInt(node, NodeStore.ITEM);
+    }
+
+    public double weight(int node) {
+        return nodes.weight(node);
+    }
+
+    public int pre(int node) {
+        return nodes.getInt(node, NodeStore.PRE);
+    }
+
+    public int pos(int node) {
+        return nodes.getInt(node, NodeStore.POS);
+    }
+
+    // Items of the i-th oldest window transaction, in the rank order it was inserted with
+    public int[] tailTransaction(int i) {
+        if (i < 0 || i >= tailSize) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + tailSize);
+        }
+        int leaf = tailLeaf[(tailHead + i) % tailLeaf.length];
+        int length = 0;
+        for (int node = leaf; node != ROOT; node = parent(node)) {
+            length++;
+        }
+        int[] items = new int[length];
+        for (int node = leaf; node != ROOT; node = parent(node)) {
+            items[--length] = item(node);
+        }
+        return items;
+    }
+
+    public void build(List<Transaction> window, WindowIndex index, ItemRank rank) {
+        for (Transaction t : window) {
+            index.add(t);
+        }
+        rank.rerank(index);
+        for (Transaction t : window) {
+            int length = sort(t.items, rank);
+            insertPath(scratch, 0, length, t.tw);
+            appendTail(t.tw);
+        }
+        assignCodes(ROOT, pre(ROOT), ((long) pos(ROOT) - pre(ROOT)) / (2L * nodeCount() + 1));
+    }
+
+    // MaintainingSWNTree on the pool: evict, insert and label per transaction, rebuild at the end
+    // of the batch if the rank table went stale
+    public void slide(List<Transaction> batch, double minWs, WindowIndex index, ItemRank rank) {
+        for (int b = 0; b < batch.size(); b++) {
+            Transaction t = batch.get(b);
+            long start = MinerMetrics.start();
+            if (tailSize == tailLeaf.length) {
+                evict();
+                MinerMetrics.add(MinerMetrics.Phase.EVICT, start);
+                start = MinerMetrics.start();
+            }
+            // sort may grow scratch, so it runs before scratch is read
+            int length = sort(t.items, rank);
+            int first = insertPath(scratch, 0, length, t.tw);
+            appendTail(t.tw);
+            index.add(t);
+            MinerMetrics.add(MinerMetrics.Phase.INSERT, start);
+            if (first != NIL) {
+                start = MinerMetrics.start();
+                labelNewPath(first);
+                MinerMetrics.add(MinerMetrics.Phase.RELABEL, start);
+            }
+        }
+
+        if (rank.isStale(index, minWs)) {
+            long start = MinerMetrics.start();
+            rank.rerank(index);
+            rebuild(rank);
+            MinerMetrics.add(MinerMetrics.Phase.RELABEL, start);
+        }
+    }
+
+    // Pre-order pass appending every node to the WN-list of its item, as wnListCreate does
+    public void wnListCreate(WNList[] byItem) {
+        for (int child = firstChild(ROOT); child != NIL; child = nextSibling(child)) {
+            wnListCreate(child, byItem);
+        }
+    }
+
+    private void wnListCreate(int node, WNList[] byItem) {
+        int item = item(node);
+        if (item < byItem.length && byItem[item] != null) {
+            byItem[item].add(pre(node), pos(node), nodes.weight(node));
+        }
+        for (int child = firstChild(node); child != NIL; child = nextSibling(child)) {
+            wnListCreate(child, byItem);
+        }
+    }
+
+    // For MinerSnapshot to flatten later, off the miner's thread; copying the arrays is all it costs
+    PooledSWNTree frozenCopy() {
+        return new PooledSWNTree(this);
+    }
+
+    // Flattens the tree and its tail for MinerSnapshot
+    MinerSnapshot.TreeImage image() {
+        MinerSnapshot.TreeImage image = new MinerSnapshot.TreeImage(nodeCount(), tailSize);
+        int size = 0;
+        for (int child = firstChild(ROOT); child != NIL; child = nextSibling(child)) {
+            size = flatten(child, image, size);
+        }
+        for (int i = 0; i < tailSize; i++) {
+            int slot = (tailHead + i) % tailLeaf.length;
+            image.tailNode[i] = tailLeaf[slot] == ROOT ? MinerSnapshot.TreeImage.ROOT_LEAF : image.indexOf(pre(tailLeaf[slot]));
+            image.tailTw[i] = tailTw[slot];
+        }
+        return image;
+    }
+
+    private int flatten(int node, MinerSnapshot.TreeImage image, int i) {
+        image.item[i] = item(node);
+        image.count[i] = nodes.getInt(node, NodeStore.COUNT);
+        image.pre[i] = pre(node);
+        image.pos[i] = pos(node);
+        image.weight[i] = nodes.weight(node);
+        int next = i + 1;
+        int children = 0;
+        for (int child = firstChild(node); child != NIL; child = nextSibling(child)) {
+            next = flatten(child, image, next);
+            children++;
+        }
+        image.children[i] = children;
+        return next;
+    }
+
+    // A tree holding exactly the nodes, codes and tail of the image; nodes are numbered in pre-order
+    static PooledSWNTree restore(MinerSnapshot.TreeImage image, int windowSize, int expectedNodes, boolean offHeap) {
+        PooledSWNTree tree = new PooledSWNTree(windowSize, expectedNodes, offHeap);
+        int[] open = new int[image.size + 1];
+        int[] expected = new int[image.size + 1];
+        int depth = 0;
+        open[0] = ROOT;
+        expected[0] = Integer.MAX_VALUE;
+        for (int i = 0; i < image.size; i++) {
+            while (expected[depth] == 0) {
+                depth--;
+            }
+            expected[depth]--;
+            int node = tree.allocate();
+            tree.initNode(node, image.item[i], image.weight[i], open[depth]);
+            tree.nodes.setInt(node, NodeStore.COUNT, image.count[i]);
+            tree.nodes.setInt(node, NodeStore.PRE, image.pre[i]);
+            tree.nodes.setInt(node, NodeStore.POS, image.pos[i]);
+            tree.appendChild(open[depth], node);
+            open[++depth] = node;
+            expected[depth] = image.children[i];
+        }
+        for (int i = 0; i < image.tailNode.length; i++) {
+            // Node ids were handed out in pre-order after the root
+            tree.lastLeaf = image.tailNode[i] == MinerSnapshot.TreeImage.ROOT_LEAF ? ROOT : image.tailNode[i] + 1;
+            tree.appendTail(image.tailTw[i]);
+        }
+        return tree;
+    }
+
+    // Sorts items by rank into the front of scratch and returns how many there are
+    private int sort(int[] items, ItemRank rank) {
+        if (items.length > scratch.length) {
+            scratch = new int[Math.max(items.length, scratch.length * 2)];
+        }
+        for (int i = 0; i < items.length; i++) {
+            scratch[i] = rank.rank(items[i]);
+        }
+        Arrays.sort(scratch, 0, items.length);
+        for (int i = 0; i < items.length; i++) {
+            scratch[i] = rank.item(scratch[i]);
+        }
+        return items.length;
+    }
+
+    // Adds the path items[from, to) with weight tw; returns the first new node, if any, and leaves
+    // the path's leaf in lastLeaf
+    private int insertPath(int[] items, int from, int to, double tw) {
+        int current = ROOT;
+        int first = NIL;
+        for (int i = from; i < to; i++) {
+            int child = findChild(current, items[i]);
+            if (child != NIL) {
+                nodes.setWeight(child, nodes.weight(child) + tw);
+                nodes.setInt(child, NodeStore.COUNT, nodes.getInt(child, NodeStore.COUNT) + 1);
+            } else {
+                child = allocate();
+                initNode(child, items[i], tw, current);
+                appendChild(current, child);
+                if (first == NIL) {
+                    first = child;
+                }
+            }
+            current = child;
+        }
+        lastLeaf = current;
+        return first;
+    }
+
+    private void appendTail(double tw) {
+        int slot = (tailHead + tailSize) % tailLeaf.length;
+        tailLeaf[slot] = lastLeaf;
+        tailTw[slot] = tw;
+        tailSize++;
+    }
+
+    // Drops the oldest transaction: walks from its leaf to the root, freeing unused nodes
+    private void evict() {
+        int node = tailLeaf[tailHead];
+        double tw = tailTw[tailHead];
+        tailHead = (tailHead + 1) % tailLeaf.length;
+        tailSize--;
+        while (node != ROOT) {
+            int parent = parent(node);
+            nodes.setWeight(node, nodes.weight(node) - tw);
+            int count = nodes.getInt(node, NodeStore.COUNT) - 1;
+            nodes.setInt(node, NodeStore.COUNT, count);
+            if (count == 0) {
+                unlinkChild(parent, node);
+                release(node);
+            }
+            node = parent;
+        }
+    }
+
+    // Reads every window path back, empties the pool and inserts the paths under the new ranks
+    private void rebuild(ItemRank rank) {
+        int total = 0;
+        for (int i = 0; i < tailSize; i++) {
+            for (int node = tailLeaf[(tailHead + i) % tailLeaf.length]; node != ROOT; node = parent(node)) {
+                total++;
+            }
+        }
+        if (total > scratch.length) {
+            scratch = new int[Math.max(total, scratch.length * 2)];
+        }
+        int end = 0;
+        for (int i = 0; i < tailSize; i++) {
+            offsets[i] = end;
+            for (int node = tailLeaf[(tailHead + i) % tailLeaf.length]; node != ROOT; node = parent(node)) {
+                scratch[end++] = rank.rank(item(node));
+            }
+            Arrays.sort(scratch, offsets[i], end);
+            for (int j = offsets[i]; j < end; j++) {
+                scratch[j] = rank.item(scratch[j]);
+            }
+        }
+        offsets[tailSize] = end;
+
+        Arrays.fill(childIds, NIL);
+        childCount = 0;
+        allocated = 1;
+        live = 1;
+        free = NIL;
+        resetRoot();
+        // Every slot keeps its tw; only its leaf changes
+        for (int i = 0; i < tailSize; i++) {
+            int slot = (tailHead + i) % tailLeaf.length;
+            insertPath(scratch, offsets[i], offsets[i + 1], tailTw[slot]);
+            tailLeaf[slot] = lastLeaf;
+        }
+        assignCodes(ROOT, pre(ROOT), ((long) pos(ROOT) - pre(ROOT)) / (2L * nodeCount() + 1));
+    }
+
+    // Same gapped labelling as labelNewPath on the object tree
+    private void labelNewPath(int first) {
+        int parent = parent(first);
+        int length = 1;
+        for (int node = first; firstChild(node) != NIL; node = firstChild(node)) {
+            length++;
+        }
+        int previous = nodes.getInt(first, NodeStore.PREV_SIBLING);
+        int lo = previous != NIL ? pos(previous) : pre(parent);
+        long step = ((long) pos(parent) - lo) / (2L * length + 1);
+        if (step < 1) {
+            relabelAncestor(parent);
+            return;
+        }
+        long code = lo;
+        int node = first;
+        while (true) {
+            code += step;
+            nodes.setInt(node, NodeStore.PRE, (int) code);
+            if (firstChild(node) == NIL) {
+                break;
+            }
+            node = firstChild(node);
+        }
+        for (; node != parent; node = parent(node)) {
+            code += step;
+            nodes.setInt(node, NodeStore.POS, (int) code);
+        }
+    }
+
+    private void relabelAncestor(int node) {
+        while (true) {
+            long step = ((long) pos(node) - pre(node)) / (2L * countDescendants(node) + 1);
+            if (step >= miningFWPsFromBenmarkDataset.MIN_RELABEL_GAP || (node == ROOT && step >= 1)) {
+                assignCodes(node, pre(node), step);
+                return;
+            }
+            if (node == ROOT) {
+                throw new IllegalStateException("SWN-tree has more nodes than pre/pos codes");
+            }
+            node = parent(node);
+        }
+    }
+
+    private long assignCodes(int node, long code, long step) {
+        for (int child = firstChild(node); child != NIL; child = nextSibling(child)) {
+            code += step;
+            nodes.setInt(child, NodeStore.PRE, (int) code);
+            code = assignCodes(child, code, step);
+            code += step;
+            nodes.setInt(child, NodeStore.POS, (int) code);
+        }
+        return code;
+    }
+
+    private int countDescendants(int node) {
+        if (node == ROOT) {
+            return nodeCount();
+        }
+        int count = 0;
+        for (int child = firstChild(node); child != NIL; child = nextSibling(child)) {
+            count += 1 + countDescendants(child);
+        }
+        return count;
+    }
+
+    private int parent(int node) {
+        return nodes.getInt(node, NodeStore.PARENT);
+    }
+
+    private int firstChild(int node) {
+        return nodes.getInt(node, NodeStore.FIRST_CHILD);
+    }
+
+    private int nextSibling(int node) {
+        return nodes.getInt(node, NodeStore.NEXT_SIBLING);
+    }
+
+    private void initNode(int node, int item, double weight, int parent) {
+        nodes.setInt(node, NodeStore.ITEM, item);
+        nodes.setInt(node, NodeStore.COUNT, 1);
+        nodes.setInt(node, NodeStore.PRE, 0);
+        nodes.setInt(node, NodeStore.POS, 0);
+        nodes.setInt(node, NodeStore.PARENT, parent);
+        nodes.setInt(node, NodeStore.FIRST_CHILD, NIL);
+        nodes.setInt(node, NodeStore.LAST_CHILD, NIL);
+        nodes.setInt(node, NodeStore.NEXT_SIBLING, NIL);
+        nodes.setInt(node, NodeStore.PREV_SIBLING, NIL);
+        nodes.setWeight(node, weight);
+    }
+
+    private int allocate() {
+        live++;
+        if (free != NIL) {
+            int node = free;
+            free = nextSibling(node);
+            return node;
+        }
+        if (allocated == nodes.capacity()) {
+            nodes.grow(allocated * 2);
+        }
+        return allocated++;
+    }
+
+    // Freed nodes are chained through their next-sibling field
+    private void release(int node) {
+        live--;
+        nodes.setInt(node, NodeStore.NEXT_SIBLING, free);
+        free = node;
+    }
+
+    private void appendChild(int parent, int child) {
+        int last = nodes.getInt(parent, NodeStore.LAST_CHILD);
+        nodes.setInt(child, NodeStore.PREV_SIBLING, last);
+        if (last == NIL) {
+            nodes.setInt(parent, NodeStore.FIRST_CHILD, child);
+        } else {
+            nodes.setInt(last, NodeStore.NEXT_SIBLING, child);
+        }
+        nodes.setInt(parent, NodeStore.LAST_CHILD, child);
+        putChild(parent, item(child), child);
+    }
+
+    private void unlinkChild(int parent, int child) {
+        int previous = nodes.getInt(child, NodeStore.PREV_SIBLING);
+        int next = nextSibling(child);
+        if (previous == NIL) {
+            nodes.setInt(parent, NodeStore.FIRST_CHILD, next);
+        } else {
+            nodes.setInt(previous, NodeStore.NEXT_SIBLING, next);
+        }
+        if (next == NIL) {
+            nodes.setInt(parent, NodeStore.LAST_CHILD, previous);
+        } else {
+            nodes.setInt(next, NodeStore.PREV_SIBLING, previous);
+        }
+        removeChild(parent, item(child));
+    }
+
+    private static long key(int parent, int item) {
+        return ((long) parent << 32) | (item & 0xFFFFFFFFL);
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (childIds.length - 1);
+    }
+
+    private int findChild(int parent, int item) {
+        long key = key(parent, item);
+        int mask = childIds.length - 1;
+        for (int i = slot(key); childIds[i] != NIL; i = (i + 1) & mask) {
+            if (childKeys[i] == key) {
+                return childIds[i];
+            }
+        }
+        return NIL;
+    }
+
+    private void putChild(int parent, int item, int child) {
+        if ((childCount + 1) * 2 > childIds.length) {
+            rehash(childIds.length * 2);
+        }
+        long key = key(parent, item);
+        int mask = childIds.length - 1;
+        int i = slot(key);
+        while (childIds[i] != NIL) {
+            i = (i + 1) & mask;
+        }
+        childKeys[i] = key;
+        childIds[i] = child;
+        childCount++;
+    }
+
+    // Backward-shift deletion keeps every probe chain unbroken without tombstones
+    private void removeChild(int parent, int item) {
+        long key = key(parent, item);
+        int mask = childIds.length - 1;
+        int i = slot(key);
+        while (childKeys[i] != key || childIds[i] == NIL) {
+            if (childIds[i] == NIL) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        for (int j = (i + 1) & mask; childIds[j] != NIL; j = (j + 1) & mask) {
+            int home = slot(childKeys[j]);
+            // Move j back into the hole unless its home lies cyclically in (i, j]
+            if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+                childKeys[i] = childKeys[j];
+                childIds[i] = childIds[j];
+                i = j;
+            }
+        }
+        childIds[i] = NIL;
+        childCount--;
+    }
+
+    private void rehash(int size) {
+        long[] oldKeys = childKeys;
+        int[] oldIds = childIds;
+        childKeys = new long[size];
+        childIds = new int[size];
+        Arrays.fill(childIds, NIL);
+        int mask = size - 1;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != NIL) {
+                int j = slot(oldKeys[i]);
+                while (childIds[j] != NIL) {
+                    j = (j + 1) & mask;
+                }
+                childKeys[j] = oldKeys[i];
+                childIds[j] = oldIds[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// A daemon thread that hands everything put on its bounded queue to a processor, until it takes
+// the end marker. The first failure is kept for the producer to rethrow; everything queued after
+// it is taken and dropped, so a producer never blocks on a worker that has stopped processing.
+class QueueWorker<T> extends Thread {
+    interface Processor<T> {
+        void process(T element) throws IOException;
+    }
+
+    private final BlockingQueue<T> queue;
+    private final T end;
+    private final Processor<T> processor;
+    private volatile Throwable failure;
+
+    QueueWorker(String name, int capacity, T end, Processor<T> processor) {
+        super(name);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.end = end;
+        this.processor = processor;
+        setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (T element = queue.take(); element != end; element = queue.take()) {
+                if (failure == null) {
+                    try {
+                        processor.process(element);
+                    } catch (IOException | RuntimeException e) {
+                        failure = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            failure = e;
+        }
+    }
+
+    boolean offer(T element) {
+        return queue.offer(element);
+    }
+
+    void put(T element) throws InterruptedException {
+        queue.put(element);
+    }
+
+    // Queues the end marker and waits for everything before it to be processed
+    void finish() throws InterruptedException {
+        queue.put(end);
+        join();
+    }
+
+    Throwable failure() {
+        return failure;
+    }
+}
@@ -0,0 +1,13 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+// Receives the FWPs of every mined window. The result and its item sets belong to the sink
+// once accepted; the miner never touches them again.
+interface ResultSink extends Closeable {
+    void accept(WindowResult result) throws IOException;
+
+    // Pushes every result accepted so far to durable storage. A snapshot is only written once the
+    // results up to its slide are, so a miner resumed from it never misses a window.
+    default void flush() throws IOException {
+    }
+}
@@ -0,0 +1,142 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Children of an SWN-tree node in insertion order (which is also pre/pos code order).
+// Small fan-outs are searched linearly; past INLINE_LIMIT children an open-addressed
+// item id -> node table is kept next to the ordered array.
+class SWNChildren implements Iterable<SWNNode> {
+    static final int INLINE_LIMIT = 8;
+    private static final int EMPTY = -1;
+
+    private SWNNode[] nodes = new SWNNode[2];
+    private int size = 0;
+    private int[] keys;
+    private SWNNode[] values;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public SWNNode get(int i) {
+        return nodes[i];
+    }
+
+    public SWNNode find(int item) {
+        if (keys == null) {
+            for (int i = 0; i < size; i++) {
+                if (nodes[i].item == item) {
+                    return nodes[i];
+                }
+            }
+            return null;
+        }
+        int mask = keys.length - 1;
+        for (int slot = hash(item) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == item) {
+                return values[slot];
+            }
+        }
+        return null;
+    }
+
+    public void add(SWNNode child) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+        }
+        nodes[size++] = child;
+        if (keys != null) {
+            if (size * 2 > keys.length) {
+                rehash(keys.length * 2);
+            } else {
+                put(child);
+            }
+        } else if (size > INLINE_LIMIT) {
+            rehash(Integer.highestOneBit(size) * 4);
+        }
+    }
+
+    public void remove(SWNNode child) {
+        int i = 0;
+        while (i < size && nodes[i] != child) {
+            i++;
+        }
+        if (i == size) {
+            return;
+        }
+        System.arraycopy(nodes, i + 1, nodes, i, size - i - 1);
+        nodes[--size] = null;
+        if (keys != null) {
+            delete(child.item);
+        }
+    }
+
+    private void rehash(int capacity) {
+        keys = new int[capacity];
+        values = new SWNNode[capacity];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < size; i++) {
+            put(nodes[i]);
+        }
+    }
+
+    private void put(SWNNode child) {
+        int mask = keys.length - 1;
+        int slot = hash(child.item) & mask;
+        while (keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = child.item;
+        values[slot] = child;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void delete(int item) {
+        int mask = keys.length - 1;
+        int slot = hash(item) & mask;
+        while (keys[slot] != item) {
+            slot = (slot + 1) & mask;
+        }
+        int next = (slot + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[slot] = EMPTY;
+        values[slot] = null;
+    }
+
+    private static int hash(int item) {
+        int h = item * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public Iterator<SWNNode> iterator() {
+        return new Iterator<SWNNode>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < size;
+            }
+
+            @Override
+            public SWNNode next() {
+                if (i >= size) {
+                    throw new NoSuchElementException();
+                }
+                return nodes[i++];
+            }
+        };
+    }
+}
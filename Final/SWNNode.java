@@ -0,0 +1,26 @@
+class SWNNode {
+    int item;
+    double weight;
+    // Number of window transactions whose path runs through this node
+    int count = 1;
+    // Nodes below the root, kept up to date on the root alone by insertPath and evictTransaction
+    int descendants;
+    int pre;
+    int pos;
+    SWNChildren childList;
+    SWNNode parent;
+
+    public SWNNode(int item, double weight, int pre, int pos, SWNNode parent) {
+        this.item = item;
+        this.weight = weight;
+        this.pre = pre;
+        this.pos = pos;
+        this.childList = new SWNChildren();
+        this.parent = parent;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SWNNode(item=%d, weight=%.2f, pre=%d, pos=%d)", item, weight, pre, pos);
+    }
+}
@@ -0,0 +1,116 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Buffers arriving transactions and slides the window by the whole buffer at once,
+// mining a single time per batch. A batch is flushed when it holds batchSize
+// transactions or when its oldest transaction has waited maxDelayMillis. Each window's FWPs
+// are returned and, if there is one, handed to the result sink.
+class SlideBatcher {
+    // Either the object tree and its tail, or a pooled tree
+    private final SWNNode root;
+    private final TailRing tail;
+    private final PooledSWNTree pooled;
+    private final WindowIndex index;
+    private final ItemRank rank;
+    private final ItemDictionary dictionary;
+    private final double minWs;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final MiningOptions options;
+    private final ResultSink sink;
+
+    private final List<Transaction> batch = new ArrayList<>();
+    private long firstArrival;
+    private long slides = 0;
+    private SnapshotWriter snapshots;
+
+    // maxDelayMillis <= 0 turns the time trigger off
+    public SlideBatcher(SWNNode root, TailRing tail, WindowIndex index, ItemRank rank, ItemDictionary dictionary, double minWs, int batchSize, long maxDelayMillis, MiningOptions options) {
+        this(root, tail, index, rank, dictionary, minWs, batchSize, maxDelayMillis, options, null);
+    }
+
+    public SlideBatcher(SWNNode root, TailRing tail, WindowIndex index, ItemRank rank, ItemDictionary dictionary, double minWs, int batchSize, long maxDelayMillis, MiningOptions options, ResultSink sink) {
+        this(root, tail, null, index, rank, dictionary, minWs, batchSize, maxDelayMillis, options, sink);
+    }
+
+    public SlideBatcher(PooledSWNTree pooled, WindowIndex index, ItemRank rank, ItemDictionary dictionary, double minWs, int batchSize, long maxDelayMillis, MiningOptions options, ResultSink sink) {
+        this(null, null, pooled, index, rank, dictionary, minWs, batchSize, maxDelayMillis, options, sink);
+    }
+
+    private SlideBatcher(SWNNode root, TailRing tail, PooledSWNTree pooled, WindowIndex index, ItemRank rank, ItemDictionary dictionary, double minWs, int batchSize, long maxDelayMillis, MiningOptions options, ResultSink sink) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1: " + batchSize);
+        }
+        this.root = root;
+        this.tail = tail;
+        this.pooled = pooled;
+        this.index = index;
+        this.rank = rank;
+        this.dictionary = dictionary;
+        this.minWs = minWs;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelayMillis > 0 ? maxDelayMillis * 1_000_000L : Long.MAX_VALUE;
+        this.options = options;
+        this.sink = sink;
+    }
+
+    // Returns the FWPs of the window if this transaction completed a batch, otherwise null
+    public List<int[]> offer(Transaction transaction) throws IOException {
+        if (batch.isEmpty()) {
+            firstArrival = System.nanoTime();
+        }
+        batch.add(transaction);
+        return batch.size() >= batchSize ? flush() : poll();
+    }
+
+    // For callers with no arrivals to report: flushes the pending batch once it is due
+    public List<int[]> poll() throws IOException {
+        if (!batch.isEmpty() && System.nanoTime() - firstArrival >= maxDelayNanos) {
+            return flush();
+        }
+        return null;
+    }
+
+    public List<int[]> flush() throws IOException {
+        if (batch.isEmpty()) {
+            return null;
+        }
+        List<int[]> fwps = pooled != null
+                ? miningFWPsFromBenmarkDataset.FWPODS(pooled, batch, minWs, index, rank, options)
+                : miningFWPsFromBenmarkDataset.FWPODS(root, batch, minWs, tail, index, rank, dictionary, options);
+        slides++;
+        if (sink != null) {
+            sink.accept(new WindowResult(slides, batch.get(batch.size() - 1).tid, index.ttw(), fwps));
+        }
+        batch.clear();
+        if (snapshots != null && snapshots.due()) {
+            snapshots.submit(snapshot());
+        }
+        return fwps;
+    }
+
+    // Checkpoints the miner through writer after the slides it falls due on
+    public void snapshotTo(SnapshotWriter writer) {
+        this.snapshots = writer;
+    }
+
+    // The miner's state as of the last slide; pending arrivals are not part of it
+    public MinerSnapshot snapshot() {
+        if (!batch.isEmpty()) {
+            throw new IllegalStateException(batch.size() + " arrivals are pending, flush before taking a snapshot");
+        }
+        return pooled != null
+                ? MinerSnapshot.capture(pooled, index, rank, dictionary, slides)
+                : MinerSnapshot.capture(root, tail, index, rank, dictionary, slides);
+    }
+
+    // Carries on the slide numbering of a restored miner
+    public void resumeAt(long slides) {
+        this.slides = slides;
+    }
+
+    public int pending() {
+        return batch.size();
+    }
+}
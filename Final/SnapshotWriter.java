@@ -0,0 +1,104 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Checkpoints a miner every periodMillis, writing on its own thread. The miner captures its state
+// between two slides: a pooled tree copies its node arrays in bulk and leaves the flattening to the
+// writer thread, while an object tree is flattened during the capture, which pauses the miner for
+// a walk of the whole tree. While one write is still running no new snapshot is taken, so a slow
+// disk costs checkpoints, never ingestion; a failed write is rethrown on the miner's next call.
+// Before each write the writer flushes the miner's results, if given, so the file never claims
+// a slide whose window is not on disk yet.
+class SnapshotWriter implements Closeable {
+    private final Path file;
+    private final ResultSink results;
+    private final long periodNanos;
+    private final ExecutorService writer;
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private volatile IOException failure;
+    private long lastCapture = System.nanoTime();
+    private long written = 0;
+    private long skipped = 0;
+
+    public SnapshotWriter(Path file, long periodMillis) {
+        this(file, periodMillis, null);
+    }
+
+    public SnapshotWriter(Path file, long periodMillis, ResultSink results) {
+        this.file = file;
+        this.results = results;
+        this.periodNanos = periodMillis * 1_000_000L;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "miner-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // True when a period has passed since the last snapshot and the writer is free to take one
+    public boolean due() throws IOException {
+        checkFailure();
+        if (System.nanoTime() - lastCapture < periodNanos) {
+            return false;
+        }
+        if (writing.get()) {
+            skipped++;
+            return false;
+        }
+        return true;
+    }
+
+    public void submit(MinerSnapshot snapshot) throws IOException {
+        checkFailure();
+        lastCapture = System.nanoTime();
+        if (!writing.compareAndSet(false, true)) {
+            skipped++;
+            return;
+        }
+        writer.execute(() -> {
+            try {
+                if (results != null) {
+                    results.flush();
+                }
+                snapshot.write(file);
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                writing.set(false);
+            }
+        });
+        written++;
+    }
+
+    // Snapshots handed to the writer thread, and periods that passed while it was still busy
+    public long written() {
+        return written;
+    }
+
+    public long skipped() {
+        return skipped;
+    }
+
+    private void checkFailure() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            throw new IOException("Writing snapshot " + file + " failed", e);
+        }
+    }
+
+    // Waits for the write in progress, if any
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkFailure();
+    }
+}
@@ -0,0 +1,406 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Hosts many independent sliding-window miners in one process. Every stream owns its tree, tail,
+// window index, rank table and thresholds; all of them share one read-only ItemDictionary, so it
+// must already hold every item the streams will see.
+//
+// submit() only queues the transaction in the stream's inbox. A stream with queued transactions
+// has exactly one drain task scheduled, so its slides stay in arrival order without locking. A
+// task handles at most quantum transactions and then goes to the back of the executor's queue,
+// which keeps one busy stream from starving the others. Tasks run on virtual threads where the
+// JDK has them, otherwise on a fixed pool of carrier threads, and never more than
+// maxConcurrentMining of them mine at the same time.
+class StreamManager implements Closeable {
+    // SWNNode, its SWNChildren and a small child array, with compressed oops
+    static final int NODE_BYTES = 104;
+
+    // Per-stream knobs
+    static class Config {
+        int windowSize = 990;
+        double minWs = 0.3;
+        int batchSize = 1;
+        // Mine the topK best itemsets (at least minWs) instead of every FWP; 0 turns it off
+        int topK = 0;
+        // Report only the closed or only the maximal FWPs; null reports every FWP
+        ClosedFWPs.Mode outputMode = null;
+        boolean incremental = false;
+        // Keep the tree in a PooledSWNTree, off the heap if offHeap is set; not with incremental
+        boolean pooledTree = false;
+        boolean offHeap = false;
+        // submit() blocks once this many transactions wait for the stream
+        int inboxCapacity = 1024;
+    }
+
+    private final ItemDictionary dictionary;
+    private final ExecutorService executor;
+    private final Semaphore mining;
+    private final Map<String, WindowStream> streams = new ConcurrentHashMap<>();
+    // Transactions a drain task handles before yielding to other streams
+    int quantum = 64;
+
+    public StreamManager(ItemDictionary dictionary, int maxConcurrentMining, int carrierThreads) {
+        this.dictionary = dictionary;
+        this.mining = new Semaphore(maxConcurrentMining, true);
+        this.executor = newExecutor(carrierThreads);
+    }
+
+    // Virtual threads are looked up reflectively so the miner still builds and runs on JDK 17
+    private static ExecutorService newExecutor(int carrierThreads) {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(1, carrierThreads), r -> {
+                Thread thread = new Thread(r, "stream-miner");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public WindowStream open(String name, Config config, ResultSink sink) {
+        WindowStream stream = new WindowStream(name, config, sink);
+        if (streams.putIfAbsent(name, stream) != null) {
+            throw new IllegalArgumentException("Stream already open: " + name);
+        }
+        return stream;
+    }
+
+    public WindowStream stream(String name) {
+        return streams.get(name);
+    }
+
+    public Collection<WindowStream> streams() {
+        return streams.values();
+    }
+
+    public void submit(String name, Transaction transaction) throws IOException {
+        WindowStream stream = streams.get(name);
+        if (stream == null) {
+            throw new IllegalArgumentException("No such stream: " + name);
+        }
+        stream.submit(transaction);
+    }
+
+    // Sum of the streams' memoryBytes()
+    public long memoryBytes() {
+        long bytes = 0;
+        for (WindowStream stream : streams.values()) {
+            bytes += stream.memoryBytes();
+        }
+        return bytes;
+    }
+
+    // Waits for every stream to drain, mines each one's pending batch and closes its sink. The
+    // first failure is rethrown once every stream has been closed.
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (WindowStream stream : streams.values()) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        streams.clear();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    class WindowStream {
+        final String name;
+        final Config config;
+        private final ResultSink sink;
+        private final BlockingQueue<Transaction> inbox;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        // Only touched by the stream's drain task, or by close() once the stream is idle
+        private final List<Transaction> filling = new ArrayList<>();
+        private final SWNNode root;
+        private final TailRing tail;
+        private final PooledSWNTree pooled;
+        private final WindowIndex index;
+        private final ItemRank rank;
+        private SlideBatcher batcher;
+
+        private volatile long transactions = 0;
+        private volatile long slides = 0;
+        private volatile long memoryBytes = 0;
+        private volatile Throwable failure;
+        private boolean closed = false;
+
+        WindowStream(String name, Config config, ResultSink sink) {
+            this.name = name;
+            this.config = config;
+            this.sink = sink;
+            this.inbox = new ArrayBlockingQueue<>(config.inboxCapacity);
+            this.pooled = config.pooledTree ? new PooledSWNTree(config.windowSize, config.windowSize * 4, config.offHeap) : null;
+            this.root = pooled == null ? miningFWPsFromBenmarkDataset.createRoot() : null;
+            this.tail = pooled == null ? new TailRing(config.windowSize) : null;
+            this.index = new WindowIndex(config.windowSize, dictionary.size());
+            this.rank = new ItemRank(dictionary.size());
+        }
+
+        public void submit(Transaction transaction) throws IOException {
+            if (closed) {
+                throw new IOException("Stream is closed: " + name);
+            }
+            checkFailure();
+            try {
+                inbox.put(transaction);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for stream " + name);
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!inbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                mining.acquire();
+                try {
+                    for (int i = 0; i < quantum && failure == null; i++) {
+                        Transaction transaction = inbox.poll();
+                        if (transaction == null) {
+                            break;
+                        }
+                        accept(transaction);
+                    }
+                    if (failure == null) {
+                        memoryBytes = measure();
+                    }
+                } finally {
+                    mining.release();
+                }
+            } catch (InterruptedException | IOException | RuntimeException e) {
+                failure = e;
+            } finally {
+                // A failed stream mines nothing more; what it had queued is dropped and submit
+                // reports the failure instead
+                if (failure != null) {
+                    inbox.clear();
+                }
+                scheduled.set(false);
+                synchronized (this) {
+                    notifyAll();
+                }
+                schedule();
+            }
+        }
+
+        private void accept(Transaction transaction) throws IOException {
+            transactions++;
+            if (batcher == null) {
+                filling.add(transaction);
+                if (filling.size() == config.windowSize) {
+                    if (pooled != null) {
+                        pooled.build(filling, index, rank);
+                        batcher = new SlideBatcher(pooled, index, rank, dictionary, config.minWs, config.batchSize, 0, options(), sink);
+                    } else {
+                        miningFWPsFromBenmarkDataset.swnTreeConstruction(filling, root, tail, index, rank);
+                        batcher = new SlideBatcher(root, tail, index, rank, dictionary, config.minWs, config.batchSize, 0, options(), sink);
+                    }
+                    filling.clear();
+                }
+            } else if (batcher.offer(transaction) != null) {
+                slides++;
+            }
+        }
+
+        private MiningOptions options() {
+            if (config.incremental) {
+                IncrementalFWPMiner miner = new IncrementalFWPMiner(index, config.minWs);
+                miner.initialize();
+                return MiningOptions.incremental(miner);
+            }
+            if (config.topK > 0) {
+                return MiningOptions.topK(new TopKFWPs(config.topK, config.minWs));
+            }
+            if (config.outputMode != null) {
+                return MiningOptions.closed(new ClosedFWPs(config.outputMode));
+            }
+            return MiningOptions.sequential();
+        }
+
+        private long measure() {
+            long bytes = index.memoryBytes() + (pooled != null ? pooled.memoryBytes()
+                    : tail.memoryBytes() + (long) NODE_BYTES * (1 + root.descendants));
+            for (Transaction transaction : filling) {
+                bytes += 40 + 16 + 4L * transaction.items.length;
+            }
+            return bytes;
+        }
+
+        // Approximate heap held by the stream's window, as of its last drain
+        public long memoryBytes() {
+            return memoryBytes;
+        }
+
+        public long transactions() {
+            return transactions;
+        }
+
+        public long slides() {
+            return slides;
+        }
+
+        public synchronized void awaitIdle() throws InterruptedIOException {
+            try {
+                while (scheduled.get() || (!inbox.isEmpty() && failure == null)) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for stream " + name);
+            }
+        }
+
+        void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                awaitIdle();
+                if (failure == null && batcher != null && batcher.flush() != null) {
+                    slides++;
+                }
+            } finally {
+                if (sink != null) {
+                    sink.close();
+                }
+            }
+            checkFailure();
+        }
+
+        private void checkFailure() throws IOException {
+            Throwable cause = failure;
+            if (cause != null) {
+                throw new IOException("Stream " + name + " failed", cause);
+            }
+        }
+    }
+    // key=value arguments: streams=1000 window=100 transactions=300 (per stream) items=27
+    // avgLength=4 minWs=0.3 topK=0 outputMode=all (or closed, maximal) batch=10 maxMining=<cores>
+    // carriers=<cores> seed=42 pooled=false offHeap=false.
+    // Every stream gets its own generated transactions over one shared dictionary; results are
+    // counted and dropped.
+    public static void main(String[] args) throws IOException {
+        Arguments arguments = new Arguments(args);
+        int streamCount = arguments.getInt("streams", 1000);
+        int window = arguments.getInt("window", 100);
+        int perStream = arguments.getInt("transactions", 300);
+        int items = arguments.getInt("items", 27);
+        int avgLength = arguments.getInt("avgLength", 4);
+        double minWs = arguments.getDouble("minWs", 0.3);
+        int topK = arguments.getInt("topK", 0);
+        String outputMode = arguments.get("outputMode", "all");
+        int batch = arguments.getInt("batch", 10);
+        int maxMining = arguments.getInt("maxMining", Runtime.getRuntime().availableProcessors());
+        int carriers = arguments.getInt("carriers", Runtime.getRuntime().availableProcessors());
+        long seed = arguments.getLong("seed", 42);
+        boolean pooledTree = arguments.getBoolean("pooled", false);
+        boolean offHeap = arguments.getBoolean("offHeap", false);
+        arguments.rejectUnknown();
+
+        List<String> itemNames = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            itemNames.addAll(dataFrameForBenmark.generateItemNames(i));
+        }
+        ItemDictionary dictionary = ItemDictionary.fromWeights(dataFrameForBenmark.generateItemWeights(itemNames, new Random(seed)));
+
+        Config config = new Config();
+        config.windowSize = window;
+        config.minWs = minWs;
+        config.topK = topK;
+        config.outputMode = outputMode.equals("all") ? null : ClosedFWPs.Mode.valueOf(outputMode.toUpperCase());
+        config.batchSize = batch;
+        config.pooledTree = pooledTree || offHeap;
+        config.offHeap = offHeap;
+        Random[] randoms = new Random[streamCount];
+        long[] fwps = new long[1];
+        ResultSink counter = new ResultSink() {
+            @Override
+            public synchronized void accept(WindowResult result) {
+                fwps[0] += result.fwps.size();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        long start = System.nanoTime();
+        long[] peak = new long[1];
+        try (StreamManager manager = new StreamManager(dictionary, maxMining, carriers)) {
+            for (int s = 0; s < streamCount; s++) {
+                manager.open("stream-" + s, config, counter);
+                randoms[s] = new Random(seed + 1 + s);
+            }
+            for (long tid = 1; tid <= perStream; tid++) {
+                for (int s = 0; s < streamCount; s++) {
+                    List<String> names = dataFrameForBenmark.generateTransactions(itemNames, 1, items, avgLength, randoms[s]).get(0);
+                    int[] ids = new int[names.size()];
+                    double tw = 0;
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = dictionary.intern(names.get(i));
+                        tw += dictionary.weight(ids[i]);
+                    }
+                    Arrays.sort(ids);
+                    manager.submit("stream-" + s, new Transaction(tid, ids, tw / ids.length));
+                }
+                if (tid % window == 0) {
+                    peak[0] = Math.max(peak[0], manager.memoryBytes());
+                }
+            }
+            for (WindowStream stream : manager.streams()) {
+                stream.awaitIdle();
+            }
+            peak[0] = Math.max(peak[0], manager.memoryBytes());
+            long slides = 0;
+            for (WindowStream stream : manager.streams()) {
+                slides += stream.slides();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d streams, %d transactions, %d slides, %d FWPs in %.1f s (%.0f transactions/s)%n",
+                    streamCount, (long) streamCount * perStream, slides, fwps[0], seconds, streamCount * perStream / seconds);
+            System.out.printf("Window memory: %.1f MB total, %.1f KB per stream at peak%n",
+                    peak[0] / 1e6, peak[0] / 1e3 / streamCount);
+        }
+    }
+}
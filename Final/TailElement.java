@@ -0,0 +1,18 @@
+import java.util.Arrays;
+
+class TailElement {
+    int[] transaction;
+    SWNNode node;
+    double weight;
+
+    public TailElement(int[] transaction, SWNNode node, double weight) {
+        this.transaction = transaction;
+        this.node = node;
+        this.weight = weight;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Tail(transaction=" + Arrays.toString(this.transaction) + ", node=" + this.node + ", weight=" + this.weight);
+    }
+}
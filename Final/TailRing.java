@@ -0,0 +1,90 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Fixed-capacity ring of tail elements, oldest first. Sized to the window so a
+// slide evicts the head and appends at the end without shifting anything.
+class TailRing implements Iterable<TailElement> {
+    private final TailElement[] elements;
+    private int head = 0;
+    private int size = 0;
+    // Items of the transactions held, for memoryBytes
+    private long items = 0;
+
+    public TailRing(int capacity) {
+        this.elements = new TailElement[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    public boolean isFull() {
+        return size == elements.length;
+    }
+
+    public TailElement get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        return elements[(head + i) % elements.length];
+    }
+
+    public void add(TailElement element) {
+        if (isFull()) {
+            throw new IllegalStateException("Tail is full, evict before adding");
+        }
+        elements[(head + size) % elements.length] = element;
+        size++;
+        items += element.transaction.length;
+    }
+
+    public TailElement removeFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        TailElement first = elements[head];
+        elements[head] = null;
+        head = (head + 1) % elements.length;
+        size--;
+        items -= first.transaction.length;
+        return first;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            elements[(head + i) % elements.length] = null;
+        }
+        head = 0;
+        size = 0;
+        items = 0;
+    }
+
+    // Approximate heap footprint of the ring, its elements and their sorted transactions
+    public long memoryBytes() {
+        return 24 + 16 + 4L * elements.length + (32 + 16) * (long) size + 4 * items;
+    }
+
+    @Override
+    public Iterator<TailElement> iterator() {
+        return new Iterator<TailElement>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < size;
+            }
+
+            @Override
+            public TailElement next() {
+                if (i >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(i++);
+            }
+        };
+    }
+}
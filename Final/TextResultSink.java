@@ -0,0 +1,101 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Writes one line per window: slide, last TID, ttw, FWP count, then every FWP as {A, B, C}
+class TextResultSink implements ResultSink {
+    private final Writer out;
+    private final ItemDictionary dictionary;
+    private final StringBuilder line = new StringBuilder();
+
+    public TextResultSink(Path file, ItemDictionary dictionary) throws IOException {
+        this(Files.newBufferedWriter(file), dictionary);
+    }
+
+    private TextResultSink(Writer out, ItemDictionary dictionary) {
+        this.out = out;
+        this.dictionary = dictionary;
+    }
+
+    // Carries on a file written by a miner that is resuming after its slide slides: the windows
+    // up to that slide stay, later ones (written after the snapshot was taken) and a line cut
+    // short by the crash are dropped, and new windows are appended
+    public static TextResultSink resume(Path file, ItemDictionary dictionary, long slides) throws IOException {
+        if (Files.exists(file)) {
+            long keep = 0;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+                long offset = 0;
+                StringBuilder head = new StringBuilder();
+                boolean counting = true;
+                int b;
+                while ((b = in.read()) >= 0) {
+                    offset++;
+                    if (b == '\n') {
+                        if (slideOf(head) > slides) {
+                            break;
+                        }
+                        keep = offset;
+                        head.setLength(0);
+                        counting = true;
+                    } else if (counting) {
+                        // Only the "slide=N " prefix of a line is needed
+                        if (b == ' ') {
+                            counting = false;
+                        } else {
+                            head.append((char) b);
+                        }
+                    }
+                }
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(keep);
+            }
+        }
+        return new TextResultSink(Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND), dictionary);
+    }
+
+    private static long slideOf(CharSequence head) throws IOException {
+        String text = head.toString();
+        if (!text.startsWith("slide=")) {
+            throw new IOException("Not a result line: " + text);
+        }
+        return Long.parseLong(text.substring("slide=".length()));
+    }
+
+    @Override
+    public void accept(WindowResult result) throws IOException {
+        line.setLength(0);
+        line.append("slide=").append(result.slide)
+                .append(" tid=").append(result.lastTid)
+                .append(" ttw=").append(result.ttw)
+                .append(" fwps=").append(result.fwps.size());
+        for (int[] itemSet : result.fwps) {
+            line.append(" {");
+            for (int i = 0; i < itemSet.length; i++) {
+                if (i > 0) {
+                    line.append(", ");
+                }
+                line.append(dictionary.name(itemSet[i]));
+            }
+            line.append('}');
+        }
+        line.append('\n');
+        out.append(line);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// The k itemsets of highest ws in the window, collected while mining. Once k are held, the
+// effective minWS is the smallest ws among them and rises with every better itemset found, so the
+// miner prunes against it instead of a fixed minWS; ws is anti-monotone, so nothing pruned could
+// have made the top k. Between slides the previous top k are re-weighed in the new window: those
+// k itemsets still exist, so the smallest of their new ws values is a safe starting threshold.
+class TopKFWPs {
+    private static class Entry {
+        final int[] itemSet;
+        final double ws;
+
+        Entry(int[] itemSet, double ws) {
+            this.itemSet = itemSet;
+            this.ws = ws;
+        }
+    }
+
+    final int k;
+    // The threshold never drops below this, even when fewer than k itemsets reach it
+    final double minWs;
+
+    private final PriorityQueue<Entry> heap;
+    private double threshold;
+    private List<int[]> previous = Collections.emptyList();
+
+    public TopKFWPs(int k, double minWs) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1: " + k);
+        }
+        this.k = k;
+        this.minWs = minWs;
+        this.heap = new PriorityQueue<>(k + 1, (a, b) -> Double.compare(a.ws, b.ws));
+        this.threshold = minWs;
+    }
+
+    // Starts a slide: the heap is emptied and the threshold warm started from the last top k
+    public void begin(WindowIndex index) {
+        heap.clear();
+        threshold = minWs;
+        if (previous.size() == k) {
+            double ttw = index.ttw();
+            double warm = Double.POSITIVE_INFINITY;
+            for (int[] itemSet : previous) {
+                warm = Math.min(warm, miningFWPsFromBenmarkDataset.calculateWs(index, ttw, itemSet));
+            }
+            // The index and the WN-lists add the same tw values in different orders, so the warm
+            // start gives way by a few ulps rather than prune one of the k it came from
+            threshold = Math.max(minWs, warm * (1 - 1e-9));
+        }
+    }
+
+    // The current effective minWS
+    public double threshold() {
+        return threshold;
+    }
+
+    public void offer(int[] itemSet, double ws) {
+        if (ws < threshold || (heap.size() == k && ws <= heap.peek().ws)) {
+            return;
+        }
+        heap.add(new Entry(itemSet, ws));
+        if (heap.size() > k) {
+            heap.poll();
+        }
+        if (heap.size() == k) {
+            threshold = Math.max(threshold, heap.peek().ws);
+        }
+    }
+
+    // Ends the slide: the top k by descending ws, kept for the next warm start
+    public List<int[]> finish() {
+        List<Entry> entries = new ArrayList<>(heap);
+        entries.sort((a, b) -> Double.compare(b.ws, a.ws));
+        List<int[]> result = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            result.add(entry.itemSet);
+        }
+        previous = result;
+        return new ArrayList<>(result);
+    }
+}
@@ -0,0 +1,19 @@
+import java.util.Arrays;
+
+// A transaction as ingested: its items sorted by id and its tw, both computed once
+class Transaction {
+    final long tid;
+    final int[] items;
+    final double tw;
+
+    public Transaction(long tid, int[] items, double tw) {
+        this.tid = tid;
+        this.items = items;
+        this.tw = tw;
+    }
+
+    @Override
+    public String toString() {
+        return "Transaction(tid=" + tid + ", items=" + Arrays.toString(items) + ", tw=" + tw + ")";
+    }
+}
@@ -0,0 +1,354 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Generates synthetic transaction streams of any size, in the CSV format of dataFrameForBenmark or
+// in the binary columnar format. The stream is cut into chunks that worker threads generate and
+// encode in parallel and the caller writes in order, with only a few chunks in flight, so memory
+// does not grow with the stream. Every chunk draws from its own random generator derived from the
+// seed and its position, so the output is the same for any number of threads.
+//
+// Item popularity follows a Zipf law over popularity ranks (zipf = 0 is uniform). With drift, the
+// items behind the ranks rotate by driftStep every driftPeriod transactions, so the popular items
+// of one window become rare a few windows later.
+class TransactionGenerator {
+    enum LengthDistribution {
+        // Uniform over 1 .. 2 * avgLength - 1, as dataFrameForBenmark draws it
+        UNIFORM,
+        // 1 + Poisson(avgLength - 1)
+        POISSON,
+        // Always avgLength
+        FIXED
+    }
+
+    static final int CHUNK = 1 << 14;
+
+    long transactions = 1000;
+    int items = 27;
+    double avgLength = 15;
+    LengthDistribution lengths = LengthDistribution.UNIFORM;
+    double zipf = 0;
+    long driftPeriod = 0;
+    int driftStep = 1;
+    long seed = 42;
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    // Popularity ranks drawn in O(1) through Vose's alias method
+    private double[] aliasProbability;
+    private int[] alias;
+    private byte[][] names;
+    private ItemDictionary dictionary;
+    private final ThreadLocal<int[]> seen = ThreadLocal.withInitial(() -> new int[items]);
+    private final ThreadLocal<int[]> stamp = ThreadLocal.withInitial(() -> new int[1]);
+
+    // The weights are drawn like dataFrameForBenmark draws them, from a Random seeded with seed
+    public ItemDictionary dictionary() {
+        if (dictionary == null) {
+            List<String> itemNames = new ArrayList<>(items);
+            for (int i = 0; i < items; i++) {
+                itemNames.addAll(dataFrameForBenmark.generateItemNames(i));
+            }
+            dictionary = ItemDictionary.fromWeights(dataFrameForBenmark.generateItemWeights(itemNames, new Random(seed)));
+        }
+        return dictionary;
+    }
+
+    public void writeWeightsCsv(Path path) throws IOException {
+        ItemDictionary dictionary = dictionary();
+        try (Writer out = Files.newBufferedWriter(path)) {
+            out.write("Items,Weights\n");
+            for (int id = 0; id < dictionary.size(); id++) {
+                out.write(dictionary.name(id) + "," + dictionary.weight(id) + "\n");
+            }
+        }
+    }
+
+    public void writeCsv(Path path) throws IOException {
+        ItemDictionary dictionary = dictionary();
+        names = new byte[items][];
+        for (int id = 0; id < items; id++) {
+            names[id] = dictionary.name(id).getBytes(StandardCharsets.UTF_8);
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16)) {
+            out.write("TID,Items\n".getBytes(StandardCharsets.US_ASCII));
+            generate(this::renderCsv, out::write);
+        }
+    }
+
+    public void writeColumnar(Path path) throws IOException {
+        ItemDictionary dictionary = dictionary();
+        try (ColumnarTransactionWriter writer = new ColumnarTransactionWriter(path, dictionary)) {
+            generate(chunk -> chunk, chunk -> {
+                for (int i = 0; i < chunk.transactions.length; i++) {
+                    int[] t = chunk.transactions[i];
+                    writer.add(chunk.firstTid + i, t, averageWeight(t, dictionary));
+                }
+            });
+        }
+    }
+
+    // Same compensated average TransactionReader computes, so both formats carry the same tw
+    static double averageWeight(int[] transaction, ItemDictionary dictionary) {
+        double sum = 0, compensation = 0;
+        for (int item : transaction) {
+            double term = dictionary.weight(item) - compensation;
+            double next = sum + term;
+            compensation = (next - sum) - term;
+            sum = next;
+        }
+        return transaction.length > 0 ? (sum - compensation) / transaction.length : 0;
+    }
+
+    static class Chunk {
+        final long firstTid;
+        final int[][] transactions;
+
+        Chunk(long firstTid, int[][] transactions) {
+            this.firstTid = firstTid;
+            this.transactions = transactions;
+        }
+    }
+
+    interface Encoder<R> {
+        R encode(Chunk chunk);
+    }
+
+    interface Sink<R> {
+        void accept(R encoded) throws IOException;
+    }
+
+    private <R> void generate(Encoder<R> encoder, Sink<R> sink) throws IOException {
+        buildAliasTable();
+        long chunks = (transactions + CHUNK - 1) / CHUNK;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            Deque<Future<R>> inFlight = new ArrayDeque<>();
+            for (long c = 0; c < chunks || !inFlight.isEmpty(); ) {
+                while (c < chunks && inFlight.size() < 2 * Math.max(1, threads)) {
+                    long chunk = c++;
+                    inFlight.add(pool.submit(() -> encoder.encode(generateChunk(chunk))));
+                }
+                sink.accept(inFlight.removeFirst().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Generating a chunk failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    Chunk generateChunk(long chunk) {
+        long first = chunk * CHUNK;
+        int size = (int) Math.min(CHUNK, transactions - first);
+        SplittableRandom random = new SplittableRandom(seed ^ (chunk + 1) * 0x9E3779B97F4A7C15L);
+        int[][] out = new int[size][];
+        for (int i = 0; i < size; i++) {
+            out[i] = transaction(first + i, random);
+        }
+        return new Chunk(first + 1, out);
+    }
+
+    private int[] transaction(long t, SplittableRandom random) {
+        int length = Math.max(1, Math.min(items, drawLength(random)));
+        int shift = driftPeriod > 0 ? (int) ((t / driftPeriod) * driftStep % items) : 0;
+
+        // Distinct items: a per-thread stamp marks the ones already drawn for this transaction
+        int[] seen = this.seen.get();
+        int[] stamp = this.stamp.get();
+        int mark = ++stamp[0];
+        if (mark == 0) {
+            Arrays.fill(seen, 0);
+            mark = stamp[0] = 1;
+        }
+        int[] transaction = new int[length];
+        int n = 0;
+        for (int attempts = 0; n < length && attempts < 32 * length; attempts++) {
+            int item = (drawRank(random) + shift) % items;
+            if (seen[item] != mark) {
+                seen[item] = mark;
+                transaction[n++] = item;
+            }
+        }
+        // A heavy skew with long transactions can starve the draw; take the rest uniformly
+        for (int item = random.nextInt(items); n < length; item = (item + 1) % items) {
+            if (seen[item] != mark) {
+                seen[item] = mark;
+                transaction[n++] = item;
+            }
+        }
+        return transaction;
+    }
+
+    private int drawLength(SplittableRandom random) {
+        switch (lengths) {
+            case FIXED:
+                return (int) Math.round(avgLength);
+            case POISSON: {
+                double mean = avgLength - 1;
+                if (mean > 30) {
+                    return 1 + (int) Math.max(0, Math.round(mean + Math.sqrt(mean) * gaussian(random)));
+                }
+                double limit = Math.exp(-mean), p = 1;
+                int k = 0;
+                while ((p *= random.nextDouble()) > limit) {
+                    k++;
+                }
+                return 1 + k;
+            }
+            default:
+                return (int) Math.round(random.nextDouble() * (2 * avgLength - 2) + 1);
+        }
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        // Box-Muller; SplittableRandom has no nextGaussian in this JDK
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private int drawRank(SplittableRandom random) {
+        int column = random.nextInt(items);
+        return random.nextDouble() < aliasProbability[column] ? column : alias[column];
+    }
+
+    private void buildAliasTable() {
+        double[] p = new double[items];
+        double total = 0;
+        for (int r = 0; r < items; r++) {
+            p[r] = 1 / Math.pow(r + 1, zipf);
+            total += p[r];
+        }
+        aliasProbability = new double[items];
+        alias = new int[items];
+        int[] small = new int[items], large = new int[items];
+        int smallCount = 0, largeCount = 0;
+        for (int r = 0; r < items; r++) {
+            p[r] = p[r] * items / total;
+            if (p[r] < 1) {
+                small[smallCount++] = r;
+            } else {
+                large[largeCount++] = r;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int s = small[--smallCount], l = large[--largeCount];
+            aliasProbability[s] = p[s];
+            alias[s] = l;
+            p[l] = p[l] + p[s] - 1;
+            if (p[l] < 1) {
+                small[smallCount++] = l;
+            } else {
+                large[largeCount++] = l;
+            }
+        }
+        while (largeCount > 0) {
+            aliasProbability[large[--largeCount]] = 1;
+        }
+        while (smallCount > 0) {
+            aliasProbability[small[--smallCount]] = 1;
+        }
+    }
+
+    private byte[] renderCsv(Chunk chunk) {
+        byte[] out = new byte[chunk.transactions.length * 64];
+        int n = 0;
+        for (int i = 0; i < chunk.transactions.length; i++) {
+            int[] t = chunk.transactions[i];
+            int need = 24;
+            for (int item : t) {
+                need += names[item].length + 2;
+            }
+            if (n + need > out.length) {
+                out = Arrays.copyOf(out, Math.max(out.length * 2, n + need));
+            }
+            byte[] tid = Long.toString(chunk.firstTid + i).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(tid, 0, out, n, tid.length);
+            n += tid.length;
+            out[n++] = ',';
+            out[n++] = '[';
+            for (int k = 0; k < t.length; k++) {
+                if (k > 0) {
+                    out[n++] = ',';
+                    out[n++] = ' ';
+                }
+                byte[] name = names[t[k]];
+                System.arraycopy(name, 0, out, n, name.length);
+                n += name.length;
+            }
+            out[n++] = ']';
+            out[n++] = '\n';
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // Custom_data.csv -> Custom_weights.csv, Large.fwpt -> Large_weights.csv
+    static String weightsFor(String out) {
+        int dot = out.lastIndexOf('.');
+        String base = dot > out.lastIndexOf(File.separatorChar) ? out.substring(0, dot) : out;
+        if (base.endsWith("_data")) {
+            base = base.substring(0, base.length() - "_data".length());
+        }
+        return base + "_weights.csv";
+    }
+
+    // key=value arguments, e.g.
+    //   java TransactionGenerator transactions=100000000 items=100000 avgLength=12 zipf=1.1
+    //       driftPeriod=50000 seed=7 out=Large_data.fwpt weights=Large_weights.csv
+    // density=d sets avgLength to d * items; length=uniform|poisson|fixed. An out file ending
+    // in .fwpt is written in the binary columnar format, anything else as CSV. Without weights=
+    // the weights go next to out, <name>_weights.csv for out=<name>_data.* or <name>.*, so a new
+    // out never overwrites the weights of another data set.
+    public static void main(String[] args) {
+        TransactionGenerator generator = new TransactionGenerator();
+        Arguments arguments = new Arguments(args);
+        generator.transactions = arguments.getLong("transactions", generator.transactions);
+        generator.items = arguments.getInt("items", generator.items);
+        generator.avgLength = arguments.getDouble("avgLength", generator.avgLength);
+        if (arguments.has("density")) {
+            generator.avgLength = Math.max(1, arguments.getDouble("density", 0) * generator.items);
+        }
+        generator.lengths = LengthDistribution.valueOf(arguments.get("length", generator.lengths.name()).toUpperCase());
+        generator.zipf = arguments.getDouble("zipf", generator.zipf);
+        generator.driftPeriod = arguments.getLong("driftPeriod", generator.driftPeriod);
+        generator.driftStep = arguments.getInt("driftStep", generator.driftStep);
+        generator.seed = arguments.getLong("seed", generator.seed);
+        generator.threads = arguments.getInt("threads", generator.threads);
+        String out = arguments.get("out", "Custom_data.csv");
+        String weights = arguments.get("weights", weightsFor(out));
+        arguments.rejectUnknown();
+
+        long start = System.nanoTime();
+        try {
+            generator.writeWeightsCsv(Paths.get(weights));
+            if (out.endsWith(".fwpt")) {
+                generator.writeColumnar(Paths.get(out));
+            } else {
+                generator.writeCsv(Paths.get(out));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        System.out.printf("Wrote %d transactions over %d items to %s in %.1f s%n",
+                generator.transactions, generator.items, out, (System.nanoTime() - start) / 1e9);
+    }
+}
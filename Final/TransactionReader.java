@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Streams "TID,[A, B, C]" rows from a transaction file one at a time. The file is read through a
+// direct buffer and parsed byte by byte: item names are looked up by their bytes, so only the first
+// occurrence of an item ever becomes a String, and tw (the average item weight) is summed on the fly.
+// Nothing is kept between rows, so memory does not grow with the file.
+class TransactionReader implements TransactionSource {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ItemDictionary dictionary;
+
+    // Item name bytes -> dictionary id, open addressed
+    private byte[][] names = new byte[64][];
+    private int[] ids = new int[64];
+    private int cached = 0;
+
+    private byte[] token = new byte[32];
+    private int[] items = new int[32];
+    private int itemCount;
+    private long tid;
+    private double tw;
+    private long row = 0;
+
+    public TransactionReader(Path path, ItemDictionary dictionary) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.dictionary = dictionary;
+        buffer.flip();
+        skipLine();
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        int b = read();
+        while (b == '\n' || b == '\r') {
+            b = read();
+        }
+        if (b < 0) {
+            return false;
+        }
+        row++;
+
+        tid = 0;
+        while (b != ',') {
+            if (b < '0' || b > '9') {
+                throw malformed("TID");
+            }
+            tid = tid * 10 + (b - '0');
+            b = read();
+        }
+        b = read();
+        while (b == ' ') {
+            b = read();
+        }
+        if (b == '[') {
+            b = read();
+        }
+
+        itemCount = 0;
+        // Compensated sum, the same one DoubleStream.average() uses, so tw matches calculateTw
+        double sum = 0, compensation = 0;
+        while (b >= 0 && b != '\n' && b != ']') {
+            while (b == ' ') {
+                b = read();
+            }
+            int length = 0;
+            while (b >= 0 && b != ',' && b != ']' && b != '\n' && b != '\r') {
+                if (length == token.length) {
+                    token = Arrays.copyOf(token, length * 2);
+                }
+                token[length++] = (byte) b;
+                b = read();
+            }
+            while (length > 0 && token[length - 1] == ' ') {
+                length--;
+            }
+            if (length > 0) {
+                int item = lookup(length);
+                if (itemCount == items.length) {
+                    items = Arrays.copyOf(items, itemCount * 2);
+                }
+                items[itemCount++] = item;
+                double term = dictionary.weight(item) - compensation;
+                double next = sum + term;
+                compensation = (next - sum) - term;
+                sum = next;
+            }
+            if (b == ',' || b == '\r') {
+                b = read();
+            }
+        }
+        if (b == ']') {
+            skipLine();
+        }
+        tw = itemCount > 0 ? (sum - compensation) / itemCount : 0;
+        return true;
+    }
+
+    // Only looks for line ends; the dictionary must already hold the items of the skipped rows
+    @Override
+    public long skip(long rows) throws IOException {
+        long skipped = 0;
+        while (skipped < rows) {
+            int b = read();
+            while (b == '\n' || b == '\r') {
+                b = read();
+            }
+            if (b < 0) {
+                break;
+            }
+            row++;
+            skipped++;
+            if (b != '\n') {
+                skipLine();
+            }
+        }
+        return skipped;
+    }
+
+    @Override
+    public long tid() {
+        return tid;
+    }
+
+    @Override
+    public int[] items() {
+        return Arrays.copyOf(items, itemCount);
+    }
+
+    @Override
+    public double tw() {
+        return tw;
+    }
+
+    @Override
+    public ItemDictionary dictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int read() throws IOException {
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+            int n = channel.read(buffer);
+            buffer.flip();
+            if (n <= 0) {
+                return -1;
+            }
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    private void skipLine() throws IOException {
+        int b = read();
+        while (b >= 0 && b != '\n') {
+            b = read();
+        }
+    }
+
+    private int lookup(int length) {
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + token[i];
+        }
+        int mask = names.length - 1;
+        int slot = hash & mask;
+        while (names[slot] != null) {
+            if (Arrays.equals(names[slot], 0, names[slot].length, token, 0, length)) {
+                return ids[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        byte[] name = Arrays.copyOf(token, length);
+        int id = dictionary.intern(new String(name, StandardCharsets.UTF_8));
+        names[slot] = name;
+        ids[slot] = id;
+        if (++cached * 2 > names.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        byte[][] oldNames = names;
+        int[] oldIds = ids;
+        names = new byte[oldNames.length * 2][];
+        ids = new int[names.length];
+        int mask = names.length - 1;
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] != null) {
+                int slot = Arrays.hashCode(oldNames[i]) & mask;
+                while (names[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                names[slot] = oldNames[i];
+                ids[slot] = oldIds[i];
+            }
+        }
+    }
+
+    private IOException malformed(String field) {
+        return new IOException("Malformed " + field + " in row " + row);
+    }
+}
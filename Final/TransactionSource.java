@@ -0,0 +1,35 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+
+// A stream of window transactions, read one row at a time
+interface TransactionSource extends Closeable {
+    // Advances to the next row; false at the end of the stream
+    boolean next() throws IOException;
+
+    long tid();
+
+    // Moves past the next rows without returning them; returns how many there were before the end
+    default long skip(long rows) throws IOException {
+        long skipped = 0;
+        while (skipped < rows && next()) {
+            skipped++;
+        }
+        return skipped;
+    }
+
+    // A fresh array the caller may keep
+    int[] items();
+
+    double tw();
+
+    // The current row as a Transaction, items sorted by id
+    default Transaction transaction() {
+        int[] items = items();
+        Arrays.sort(items);
+        return new Transaction(tid(), items, tw());
+    }
+
+    // Maps the item ids of this stream to names and weights
+    ItemDictionary dictionary();
+}
@@ -0,0 +1,114 @@
+import java.util.Arrays;
+
+// WN-list of an itemset as parallel arrays sorted by pre: one entry per SWN-tree node
+// (its pre/pos codes and the weight the itemset contributes there), plus the total weight.
+class WNList {
+    // Each thread intersects into its own scratch list, so only surviving results allocate
+    private static final ThreadLocal<WNList> SCRATCH = ThreadLocal.withInitial(() -> new WNList(null, 64));
+
+    final int[] itemSet;
+    int[] pre;
+    int[] pos;
+    double[] weight;
+    int size;
+    double totalWeight;
+
+    public WNList(int[] itemSet, int capacity) {
+        this.itemSet = itemSet;
+        this.pre = new int[capacity];
+        this.pos = new int[capacity];
+        this.weight = new double[capacity];
+    }
+
+    private WNList(int[] itemSet, int[] pre, int[] pos, double[] weight, int size, double totalWeight) {
+        this.itemSet = itemSet;
+        this.pre = pre;
+        this.pos = pos;
+        this.weight = weight;
+        this.size = size;
+        this.totalWeight = totalWeight;
+    }
+
+    // The same nodes and weights under another itemset, for items known to occur wherever this one does
+    public WNList withItemSet(int[] itemSet) {
+        return new WNList(itemSet, pre, pos, weight, size, totalWeight);
+    }
+
+    public void add(int nodePre, int nodePos, double nodeWeight) {
+        if (size == pre.length) {
+            ensureCapacity(size * 2);
+        }
+        pre[size] = nodePre;
+        pos[size] = nodePos;
+        weight[size] = nodeWeight;
+        size++;
+        totalWeight += nodeWeight;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > pre.length) {
+            pre = Arrays.copyOf(pre, capacity);
+            pos = Arrays.copyOf(pos, capacity);
+            weight = Arrays.copyOf(weight, capacity);
+        }
+    }
+
+    // Joins the nodes of descendants (WNL1) onto their ancestors in WNL2; returns null when the
+    // result is empty or the bound s shows it cannot reach minWeight
+    public static WNList intersect(WNList WNL1, WNList WNL2, double minWeight) {
+        MinerMetrics metrics = MinerMetrics.active();
+        if (metrics != null) {
+            metrics.countIntersection();
+        }
+        WNList out = SCRATCH.get();
+        out.size = 0;
+        out.ensureCapacity(WNL2.size);
+        int[] pre1 = WNL1.pre, pos1 = WNL1.pos, pre2 = WNL2.pre, pos2 = WNL2.pos, outPre = out.pre, outPos = out.pos;
+        double[] weight1 = WNL1.weight, weight2 = WNL2.weight, outWeight = out.weight;
+        int m = WNL1.size, n = WNL2.size;
+        int k = -1, i = 0, j = 0;
+
+        double s = WNL1.totalWeight + WNL2.totalWeight;
+        double total = 0;
+
+        while (i < m && j < n) {
+            if (pre2[j] < pre1[i]) {
+                if (pos2[j] > pos1[i]) {
+                    if (k < 0 || outPre[k] != pre2[j]) {
+                        k++;
+                        outPre[k] = pre2[j];
+                        outPos[k] = pos2[j];
+                        outWeight[k] = 0;
+                    }
+                    outWeight[k] += weight1[i];
+                    total += weight1[i];
+                    i++;
+                } else {
+                    s -= weight2[j];
+                    j++;
+                }
+            } else {
+                s -= weight1[i];
+                i++;
+            }
+            if (s < minWeight) {
+                if (metrics != null) {
+                    metrics.countPruned();
+                }
+                return null;
+            }
+        }
+
+        if (k < 0) {
+            return null;
+        }
+        int size = k + 1;
+        return new WNList(miningFWPsFromBenmarkDataset.unionItemSet(WNL1.itemSet, WNL2.itemSet),
+                Arrays.copyOf(outPre, size), Arrays.copyOf(outPos, size), Arrays.copyOf(outWeight, size), size, total);
+    }
+
+    @Override
+    public String toString() {
+        return "WNList(itemSet=" + Arrays.toString(itemSet) + ", size=" + size + ", totalWeight=" + totalWeight + ")";
+    }
+}
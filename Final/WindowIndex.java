@@ -0,0 +1,199 @@
+import java.util.Arrays;
+import java.util.List;
+
+// Vertical index of the sliding window: one bitset per item over the window slots,
+// plus the tw of the transaction in each slot. The ws of an itemset is the AND of
+// its item bitmaps followed by a sum of tw over the remaining bits.
+class WindowIndex {
+    private final int capacity;
+    private final int words;
+    private long[][] bitmaps;
+    private double[] itemTw;
+    private final double[] tw;
+    private final Transaction[] slots;
+    private int next = 0;
+    private int count = 0;
+    // Every transaction ever added, including the ones evicted since
+    private long added = 0;
+    // Items of the transactions held and bitmaps allocated, for memoryBytes
+    private long items = 0;
+    private int bitmapCount = 0;
+
+    public WindowIndex(int capacity, int itemCount) {
+        this.capacity = capacity;
+        this.words = (capacity + 63) >>> 6;
+        this.bitmaps = new long[Math.max(itemCount, 1)][];
+        this.itemTw = new double[bitmaps.length];
+        this.tw = new double[capacity];
+        this.slots = new Transaction[capacity];
+    }
+
+    // Puts the transaction in the next slot, evicting the oldest one once the window is full
+    public void add(Transaction t) {
+        int slot = next;
+        if (count == capacity) {
+            clear(slot);
+        } else {
+            count++;
+        }
+        int[] transaction = t.items;
+        for (int i = 0; i < transaction.length; i++) {
+            int item = transaction[i];
+            // Items are sorted, so a repeated item follows its first occurrence and counts once
+            if (i > 0 && item == transaction[i - 1]) {
+                continue;
+            }
+            bitmap(item)[slot >>> 6] |= 1L << slot;
+            itemTw[item] += t.tw;
+        }
+        tw[slot] = t.tw;
+        slots[slot] = t;
+        items += transaction.length;
+        next = (next + 1) % capacity;
+        added++;
+    }
+
+    private void clear(int slot) {
+        int[] transaction = slots[slot].items;
+        for (int i = 0; i < transaction.length; i++) {
+            int item = transaction[i];
+            if (i > 0 && item == transaction[i - 1]) {
+                continue;
+            }
+            bitmaps[item][slot >>> 6] &= ~(1L << slot);
+            itemTw[item] -= tw[slot];
+        }
+        items -= transaction.length;
+        tw[slot] = 0;
+        slots[slot] = null;
+    }
+
+    // Refills an empty index with a window taken from another one, oldest first, slot for slot.
+    // The per-item sums are taken as they were rather than re-added, so they match the original
+    // to the last bit and the restored window ranks and weighs exactly like it.
+    void restore(List<Transaction> window, int next, double[] itemTw, long added) {
+        if (this.added != 0 || window.size() > capacity) {
+            throw new IllegalStateException("Only an empty index of at least the window's capacity can be restored");
+        }
+        int first = window.size() == capacity ? next : 0;
+        for (int i = 0; i < window.size(); i++) {
+            Transaction t = window.get(i);
+            int slot = (first + i) % capacity;
+            for (int item : t.items) {
+                bitmap(item)[slot >>> 6] |= 1L << slot;
+            }
+            tw[slot] = t.tw;
+            slots[slot] = t;
+            items += t.items.length;
+        }
+        bitmap(itemTw.length - 1);
+        System.arraycopy(itemTw, 0, this.itemTw, 0, itemTw.length);
+        this.count = window.size();
+        this.next = next;
+        this.added = added;
+    }
+
+    private long[] bitmap(int item) {
+        if (item >= bitmaps.length) {
+            bitmaps = Arrays.copyOf(bitmaps, Math.max(item + 1, bitmaps.length * 2));
+            itemTw = Arrays.copyOf(itemTw, bitmaps.length);
+        }
+        if (bitmaps[item] == null) {
+            bitmaps[item] = new long[words];
+            bitmapCount++;
+        }
+        return bitmaps[item];
+    }
+
+    // Sum of tw over the window transactions containing every item of the itemset
+    public double weightedSupport(int[] itemSet) {
+        for (int item : itemSet) {
+            if (item >= bitmaps.length || bitmaps[item] == null) {
+                return 0;
+            }
+        }
+        double sum = 0;
+        for (int w = 0; w < words; w++) {
+            long word = -1L;
+            for (int item : itemSet) {
+                word &= bitmaps[item][w];
+                if (word == 0) {
+                    break;
+                }
+            }
+            int base = w << 6;
+            while (word != 0) {
+                sum += tw[base + Long.numberOfTrailingZeros(word)];
+                word &= word - 1;
+            }
+        }
+        return sum;
+    }
+
+    // Bitmap of the window slots holding the item, shared with the index: read it, never change it.
+    // Slots are only meaningful until the next slide.
+    long[] tidSet(int item) {
+        if (item < bitmaps.length && bitmaps[item] != null) {
+            return bitmaps[item];
+        }
+        return new long[words];
+    }
+
+    // tw of the transaction in the slot, 0 for an empty one
+    double tw(int slot) {
+        return tw[slot];
+    }
+
+    // Sum of tw over the window transactions containing the item, kept up to date on every slide
+    public double itemWeight(int item) {
+        return item < itemTw.length ? itemTw[item] : 0;
+    }
+
+    public int itemCount() {
+        return bitmaps.length;
+    }
+
+    // Total transaction weight of the window
+    public double ttw() {
+        double sum = 0;
+        for (double weight : tw) {
+            sum += weight;
+        }
+        return sum;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // The i-th oldest transaction of the window
+    public Transaction transaction(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + count);
+        }
+        return slots[((count == capacity ? next : 0) + i) % capacity];
+    }
+
+    // Slot the next transaction goes into
+    int next() {
+        return next;
+    }
+
+    double[] itemTws() {
+        return Arrays.copyOf(itemTw, itemTw.length);
+    }
+
+    public long added() {
+        return added;
+    }
+
+    // Approximate heap footprint with compressed oops: 16-byte array headers, 4-byte references
+    public long memoryBytes() {
+        return 64 + 16 + 4L * bitmaps.length + 16 + 8L * itemTw.length + 16 + 8L * capacity + 16 + 4L * capacity
+                + (16 + 8L * words) * bitmapCount + (32 + 16) * (long) count + 4 * items;
+    }
+}
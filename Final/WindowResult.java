@@ -0,0 +1,22 @@
+import java.util.List;
+
+// The FWPs of one window, as handed to a ResultSink. slide counts the slides of the miner that
+// produced it; lastTid is the newest transaction in the window.
+class WindowResult {
+    final long slide;
+    final long lastTid;
+    final double ttw;
+    final List<int[]> fwps;
+
+    public WindowResult(long slide, long lastTid, double ttw, List<int[]> fwps) {
+        this.slide = slide;
+        this.lastTid = lastTid;
+        this.ttw = ttw;
+        this.fwps = fwps;
+    }
+
+    @Override
+    public String toString() {
+        return "WindowResult(slide=" + slide + ", lastTid=" + lastTid + ", ttw=" + ttw + ", fwps=" + fwps.size() + ")";
+    }
+}
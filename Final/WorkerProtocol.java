@@ -0,0 +1,109 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// The messages between an FWPCoordinator and its FWPWorkers, big-endian over one TCP connection
+// per worker. The coordinator speaks first:
+//   HELLO: int MAGIC, int VERSION, int part, int parts, int windowSize, double minWs, int itemCount
+// then any number of
+//   FILL:  byte FILL, int count, the transactions of the first window, oldest first
+//   SLIDE: byte SLIDE, long slide, int evicted, int count, the transactions that arrived
+//   END:   byte END, after which both sides close
+// where a transaction is long tid, double tw, varint length and its ascending item ids as varint
+// deltas. Every SLIDE is answered by
+//   RESULT: long slide, double ttw, long mining nanos, int class count, then per class an int key
+//     and int FWP count, each FWP as a varint length and varint deltas
+// A FILL gets no answer: like the single-process miner, the first window is built but not mined.
+class WorkerProtocol {
+    static final int MAGIC = 0x46575057; // "FWPW"
+    static final int VERSION = 1;
+
+    static final byte FILL = 1;
+    static final byte SLIDE = 2;
+    static final byte END = 3;
+
+    private WorkerProtocol() {
+    }
+
+    static void writeTransactions(DataOutputStream out, List<Transaction> transactions) throws IOException {
+        out.writeInt(transactions.size());
+        for (Transaction t : transactions) {
+            out.writeLong(t.tid);
+            out.writeDouble(t.tw);
+            writeItemSet(out, t.items);
+        }
+    }
+
+    static List<Transaction> readTransactions(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long tid = in.readLong();
+            double tw = in.readDouble();
+            transactions.add(new Transaction(tid, readItemSet(in), tw));
+        }
+        return transactions;
+    }
+
+    static void writeItemSets(DataOutputStream out, List<int[]> itemSets) throws IOException {
+        out.writeInt(itemSets.size());
+        for (int[] itemSet : itemSets) {
+            writeItemSet(out, itemSet);
+        }
+    }
+
+    static List<int[]> readItemSets(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<int[]> itemSets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            itemSets.add(readItemSet(in));
+        }
+        return itemSets;
+    }
+
+    // Item ids must be ascending, as they are in transactions and FWPs
+    static void writeItemSet(DataOutputStream out, int[] itemSet) throws IOException {
+        writeVarInt(out, itemSet.length);
+        int previous = 0;
+        for (int item : itemSet) {
+            writeVarInt(out, item - previous);
+            previous = item;
+        }
+    }
+
+    static int[] readItemSet(DataInputStream in) throws IOException {
+        int[] itemSet = new int[readVarInt(in)];
+        int previous = 0;
+        for (int i = 0; i < itemSet.length; i++) {
+            previous += readVarInt(in);
+            itemSet[i] = previous;
+        }
+        return itemSet;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -1,12 +1,13 @@
+import java.io.BufferedReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class dataFrameForBenmark {
 
-    private static List<String> generateItemNames(int index) {
+    static List<String> generateItemNames(int index) {
         String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
         int baseLen = alphabet.length();
         List<String> itemNames = new ArrayList<>();
@@ -21,8 +22,12 @@ public class dataFrameForBenmark {
     }
 
     private static Map<String, Double> generateItemWeights(List<String> itemNames) {
-        Random random = new Random();
-        Map<String, Double> itemWeights = new HashMap<>();
+        return generateItemWeights(itemNames, new Random());
+    }
+
+    // Same Random, same weights: benchmarks pass a seeded one
+    static Map<String, Double> generateItemWeights(List<String> itemNames, Random random) {
+        Map<String, Double> itemWeights = new LinkedHashMap<>();
         for (String itemName : itemNames) {
             itemWeights.put(itemName, Math.round((0.1 + random.nextDouble() * 0.9) * 100.0) / 100.0);
         }
@@ -30,14 +35,17 @@ public class dataFrameForBenmark {
     }
 
     public static List<List<String>> generateTransactions(List<String> itemNames, int numTransactions, int numItems, int avgLength) {
+        return generateTransactions(itemNames, numTransactions, numItems, avgLength, new Random());
+    }
+
+    public static List<List<String>> generateTransactions(List<String> itemNames, int numTransactions, int numItems, int avgLength, Random random) {
         List<List<String>> transactions = new ArrayList<>();
-        Random random = new Random();
 
         for (int i = 0; i < numTransactions; i++) {
             int numItemsInTransaction = (int) Math.round(random.nextDouble() * (2 * avgLength - 2) + 1);
             numItemsInTransaction = Math.max(1, Math.min(numItemsInTransaction, numItems));
             List<String> transactionItems = new ArrayList<>(itemNames);
-            Collections.shuffle(transactionItems);
+            Collections.shuffle(transactionItems, random);
             transactionItems = transactionItems.subList(0, numItemsInTransaction);
             transactions.add(transactionItems);
         }
@@ -74,23 +82,23 @@ public class dataFrameForBenmark {
     public static List<String[]> readCsv(String fileName) {
         List<String[]> data = new ArrayList<>();
 
-        try (Scanner scanner = new Scanner(dataFrame.class.getResourceAsStream(fileName))) {
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(fileName))) {
             // Read the data rows
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-
-                // Use regex to separate the columns
-                Pattern pattern = Pattern.compile("(.*?),\\s*(.*)");
-                Matcher matcher = pattern.matcher(line);
-
-                if (matcher.matches()) {
-                    String column1 = matcher.group(1);
-                    String column2 = matcher.group(2);
-
-                    // Create a new row with the columns
-                    String[] row = new String[]{column1, column2};
-                    data.add(row);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Split off the first column, the rest of the line is the second
+                int comma = line.indexOf(',');
+                if (comma < 0) {
+                    continue;
+                }
+                int start = comma + 1;
+                while (start < line.length() && Character.isWhitespace(line.charAt(start))) {
+                    start++;
                 }
+
+                // Create a new row with the columns
+                String[] row = new String[]{line.substring(0, comma), line.substring(start)};
+                data.add(row);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -156,88 +164,44 @@ public class dataFrameForBenmark {
             System.out.println("Type: " + datasetType);
         }
 
-        // Read the transaction data from the generated CSV files
+        // Profile the generated CSV files: one streamed pass gives tw, TTW and the ws of every item
         for (Map.Entry<String, Map<String, Integer>> entry : datasets.entrySet()) {
             String dataset = entry.getKey();
             String filename = dataset + "_data.csv";
             String weightsFilename = dataset + "_weights.csv";
 
-            List<String[]> df1 = readCsv(filename);
-            List<String[]> df2 = readCsv(weightsFilename);
-
-            // Convert item weights to a dictionary
-            Map<String, Double> itemWeights = new HashMap<>();
-            for (int i = 1; i < df2.size(); i++) {
-                String[] row = df2.get(i);
-                itemWeights.put(row[0], Double.parseDouble(row[1]));
-            }
-
-            // Calculate transaction weighted (tw)
-            // Split the items in the 'Items' column and calculate the tw for each transaction
-            List<Map<String, Object>> df1_tw = new ArrayList<>();
-            for (int i = 1; i < df1.size(); i++) {
-                String[] row = df1.get(i);
-                String[] itemsInTransaction = row[1].split(", ");
-                double tw = Arrays.stream(itemsInTransaction)
-                        .mapToDouble(item -> itemWeights.getOrDefault(item, 0.0))
-                        .average()
-                        .orElse(0.0);
-                Map<String, Object> newRow = new HashMap<>();
-                newRow.put("TID", row[0]);
-                newRow.put("tw", tw);
-                df1_tw.add(newRow);
-            }
-
-            // Create the DataFrame for tw
-            List<Map<String, Object>> df_tw = new ArrayList<>();
-            for (Map<String, Object> row : df1_tw) {
-                Map<String, Object> newRow = new HashMap<>();
-                newRow.put("TID", row.get("TID"));
-                newRow.put("tw", row.get("tw"));
-                df_tw.add(newRow);
-            }
-
-            // Calculate TTW (Total Transaction Weights)
-            double TTW = df1_tw.stream().mapToDouble(row -> (double) row.get("tw")).sum();
-
-            // Calculate weighted support (ws)
-            Set<String> items = itemWeights.keySet();
-            List<Map<String, Object>> df_ws = new ArrayList<>();
-            for (String item : items) {
-                double totalTwWithItem = df1_tw.stream()
-                    .filter(row -> {
-                        String tid = row.get("TID").toString();
-                        Optional<String[]> dataSetRowOptional = df1.stream()
-                                .filter(dataSetRow -> dataSetRow[0].equals(tid))
-                                .findFirst();
-                        return dataSetRowOptional.isPresent() && dataSetRowOptional.get().length > 1 &&
-                        Arrays.asList(dataSetRowOptional.get()[1].substring(1, dataSetRowOptional.get()[1].length() - 1).split(", "))
-                                .contains(item);
-                    })
-                    .mapToDouble(row -> (double) row.get("tw"))
-                    .sum();
-                double ws = totalTwWithItem / TTW;
-                Map<String, Object> newRow = new HashMap<>();
-                newRow.put("Items", item);
-                newRow.put("ws", ws);
-                df_ws.add(newRow);
-            }
-
-            // Sort the DataFrame by 'ws' in descending order
-            df_ws.sort(Comparator.<Map<String, Object>, Double>comparing(row -> (double) row.get("ws")).reversed());
-
-            // Display the DataFrames
-            System.out.println("\nTable example for tw (" + dataset + "):");
-            for (Map<String, Object> row : df_tw) {
-                System.out.println(row);
-            }
-
-            System.out.println("\nTTW (" + dataset + "):");
-            System.out.println(TTW);
-
-            System.out.println("\nTable example for ws (" + dataset + "):");
-            for (Map<String, Object> row : df_ws) {
-                System.out.println(row);
+            try (TransactionSource source = miningFWPsFromBenmarkDataset.openTransactions(filename, weightsFilename)) {
+                // Calculate transaction weighted (tw) while the profiler sees every transaction
+                List<String> twTable = new ArrayList<>();
+                TransactionSource recording = new TransactionSource() {
+                    public boolean next() throws IOException {
+                        if (!source.next()) {
+                            return false;
+                        }
+                        twTable.add("{TID=" + source.tid() + ", tw=" + source.tw() + "}");
+                        return true;
+                    }
+                    public long tid() { return source.tid(); }
+                    public int[] items() { return source.items(); }
+                    public double tw() { return source.tw(); }
+                    public ItemDictionary dictionary() { return source.dictionary(); }
+                    public void close() { }
+                };
+                DatasetProfiler.Profile profile = new DatasetProfiler().profile(recording);
+
+                // Display the DataFrames
+                System.out.println("\nTable example for tw (" + dataset + "):");
+                twTable.forEach(System.out::println);
+
+                System.out.println("\nTTW (" + dataset + "):");
+                System.out.println(profile.ttw);
+
+                System.out.println("\nTable example for ws (" + dataset + "):");
+                for (int item : profile.itemsByWs()) {
+                    System.out.println("{Items=" + profile.dictionary.name(item) + ", ws=" + profile.ws(item) + "}");
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
         }
     }
@@ -0,0 +1,71 @@
+package jmh;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// FWPBenchmark's benchmarks under JMH, with the same parameters, e.g.
+//   mvn -B -P jmh package
+//   java -jar target/benchmarks.jar -prof gc
+//   java -jar target/benchmarks.jar -p bench=slide,fwpods -p window=990,5000 -p items=27,100 -prof gc
+// JMH refuses benchmarks in the default package, where the miner lives, so each trial looks its
+// operation up by reflection once; the measured method only calls Runnable.run.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class MinerBenchmark {
+    @Param({"build", "slide", "intersect", "ws", "fwpods"})
+    public String bench;
+
+    @Param("990")
+    public int window;
+
+    @Param("27")
+    public int items;
+
+    @Param("15")
+    public int avgLength;
+
+    // Replaces avgLength by density * items when above 0
+    @Param("0")
+    public double density;
+
+    @Param("0.3")
+    public double minWs;
+
+    @Param("42")
+    public long seed;
+
+    private Runnable operation;
+
+    @Setup(Level.Trial)
+    public void setup() throws ReflectiveOperationException {
+        int length = density > 0 ? (int) Math.max(1, Math.round(density * items)) : avgLength;
+        Method factory = Class.forName("FWPBenchmark")
+                .getMethod("operation", String.class, int.class, int.class, int.class, double.class, long.class);
+        operation = (Runnable) factory.invoke(null, bench, window, items, length, minWs, seed);
+        if (operation == null) {
+            throw new IllegalStateException("Nothing to measure for " + bench + " at minWs " + minWs);
+        }
+    }
+
+    @Benchmark
+    public void run() {
+        operation.run();
+    }
+}
@@ -1,101 +1,21 @@
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-
-class SWNNode {
-    String name;
-    double weight;
-    int pre;
-    int pos;
-    List<SWNNode> childList;
-    SWNNode parent;
-
-    public SWNNode(String name, double weight, int pre, int pos, List<SWNNode> childList, SWNNode parent) {
-        this.name = name;
-        this.weight = weight;
-        this.pre = pre;
-        this.pos = pos;
-        this.childList = (childList != null) ? childList : new ArrayList<>();
-        this.parent = parent;
-    }
-
-    @Override
-    public String toString() {
-        return String.format("SWNNode(name=%s, weight=%.2f, pre=%d, pos=%d)", name, weight, pre, pos);
-    }
-}
-
-class TailElement {
-    List<String> transaction;
-    SWNNode node;
-    double weight;
-
-    public TailElement(List<String> transaction, SWNNode node, double weight) {
-        this.transaction = transaction;
-        this.node = node;
-        this.weight = weight;
-    }
-
-    @Override
-    public String toString() {
-        return String.format("Tail(transaction=" + this.transaction + ", node=" + this.node + ", weight=" + this.weight);
-    }
-}
-
-class WLNode {
-    int pre;
-    int pos;
-    double weight;
-
-    public WLNode(int pre, int pos, double weight) {
-        this.pre = pre;
-        this.pos = pos;
-        this.weight = weight;
-    }
-
-    @Override
-    public String toString() {
-        return String.format("WLNode(pre=%d, pos=%d, weight=%.2f)", pre, pos, weight);
-    }
-}
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class miningFWPsFromBenmarkDataset {
-    static int preCounter = 0;
-    static int postCounter = 1;
-
-    public static List<Map<String, String>> readTransactionData(String filename) {
-        List<Map<String, String>> data = new ArrayList<>();
-        try (Scanner scanner = new Scanner(new FileReader(filename))) {
-            String[] headers = scanner.nextLine().split(",");
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-
-                // Use regex to separate the columns
-                Pattern pattern = Pattern.compile("(.*?),\\s*(.*)");
-                Matcher matcher = pattern.matcher(line);
-
-                if (matcher.matches()) {
-                    String column1 = matcher.group(1);
-                    String column2 = matcher.group(2).replaceAll("\\[|\\]", "");
-
-                    Map<String, String> row = new HashMap<>();
-                    row.put(headers[0], column1);
-                    row.put(headers[1], column2);
-                    data.add(row);
-                }
-            }
-            scanner.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return data;
-    }
+    // Smallest spacing between codes accepted when an ancestor subtree is relabeled;
+    // below this the relabel moves one level up so the next insertions find free codes
+    static final int MIN_RELABEL_GAP = 64;
 
     public static Map<String, Double> readItemWeights(String filename) {
-        Map<String, Double> itemWeights = new HashMap<>();
+        // Keep file order so item ids are stable between runs
+        Map<String, Double> itemWeights = new LinkedHashMap<>();
         try (Scanner scanner = new Scanner(new FileReader(filename))) {
             scanner.nextLine().split(",");
             while (scanner.hasNextLine()) {
@@ -109,482 +29,840 @@ public class miningFWPsFromBenmarkDataset {
         return itemWeights;
     }
 
-    public static List<Map<String, String>> calculateTw(List<Map<String, String>> data, Map<String, Double> itemWeights) {
-        return data.stream()
-                .map(row -> {
-                    String itemsHeader = "Items";
-                    String itemsString = row.get(itemsHeader);
-    
-                    List<String> itemsInTransaction = Arrays.asList(itemsString.split(", "));
-                    double tw = itemsInTransaction.stream()
-                            .mapToDouble(item -> itemWeights.getOrDefault(item, 0.0))
-                            .average()
-                            .orElse(0.0);
-                    row.put("tw", Double.toString(tw));
-                    return row;
-                })
-                .collect(Collectors.toList());
-    }
-
-    private static void removeNodeFromTree(SWNNode root, TailElement targetNode) {
-        Iterator<SWNNode> iterator = root.childList.iterator();
-        while (iterator.hasNext()) {
-            SWNNode child = iterator.next();
-            if (child.pre == targetNode.node.pre && child.pos == targetNode.node.pos) {
-                child.weight -= targetNode.weight;
-                if (child.weight <= 0) {
-                    iterator.remove();
-                }
-                return;
+    // Reads a whole transaction file; main streams instead and never holds more than the window
+    public static List<Transaction> readTransactions(String dataFile, ItemDictionary dictionary) {
+        List<Transaction> transactions = new ArrayList<>();
+        try (TransactionSource source = new TransactionReader(Paths.get(dataFile), dictionary)) {
+            while (source.next()) {
+                transactions.add(source.transaction());
             }
-            removeNodeFromTree(child, targetNode);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return transactions;
+    }
+
+    // The pre/pos codes are gapped parenthesis labels: a node's pre and pos enclose the codes of
+    // all its descendants and come before the codes of its later siblings. Sorting by pre gives
+    // pre-order, sorting by pos gives post-order, and "pre < pre && pos > pos" is the ancestor test.
+    // The root owns the whole code range, so every tree carries its own numbering.
+    public static SWNNode createRoot() {
+        return new SWNNode(ItemDictionary.ROOT, 0, 0, Integer.MAX_VALUE, null);
+    }
+
+    // Spreads the codes of every descendant of node evenly between node.pre and node.pos
+    public static void depthFirstSearch(SWNNode node) {
+        if (node != null) {
+            long step = ((long) node.pos - node.pre) / (2L * countDescendants(node) + 1);
+            assignCodes(node, node.pre, step);
         }
     }
 
-    public static List<String> customSort(List<String> transaction, List<Map<String, String>> df, int ti) {
-        List<String> sortingTransaction = new ArrayList<>(transaction);
-        List<String> storeSortedT = new ArrayList<>();
-    
-        for (int i = 0; i < df.size(); i++) {
-            if (!storeSortedT.isEmpty()) {
-                sortingTransaction = new ArrayList<>(storeSortedT);
-                storeSortedT.clear();
+    private static long assignCodes(SWNNode node, long code, long step) {
+        for (SWNNode child : node.childList) {
+            code += step;
+            child.pre = (int) code;
+            code = assignCodes(child, code, step);
+            code += step;
+            child.pos = (int) code;
+        }
+        return code;
+    }
+
+    static int countDescendants(SWNNode node) {
+        int count = 0;
+        for (SWNNode child : node.childList) {
+            count += 1 + countDescendants(child);
+        }
+        return count;
+    }
+
+    // A new path hangs off its parent as the last child, so its codes go between the pos of the
+    // previous last child (or the parent's pre) and the parent's pos. If that gap is too small,
+    // the nearest ancestor with enough room is relabeled instead of the whole tree.
+    static void labelNewPath(SWNNode first) {
+        SWNNode parent = first.parent;
+        int length = 1;
+        for (SWNNode node = first; !node.childList.isEmpty(); node = node.childList.get(0)) {
+            length++;
+        }
+        int lo = parent.childList.size() > 1 ? parent.childList.get(parent.childList.size() - 2).pos : parent.pre;
+        long step = ((long) parent.pos - lo) / (2L * length + 1);
+        if (step < 1) {
+            relabelAncestor(parent);
+            return;
+        }
+        long code = lo;
+        SWNNode node = first;
+        while (true) {
+            code += step;
+            node.pre = (int) code;
+            if (node.childList.isEmpty()) {
+                break;
             }
-            List<String> storeRemainingItems = new ArrayList<>();
-            int check = 0;
-    
-            if (i == ti && i != df.size() - 1) {
-                continue;
+            node = node.childList.get(0);
+        }
+        for (; node != parent; node = node.parent) {
+            code += step;
+            node.pos = (int) code;
+        }
+    }
+
+    private static void relabelAncestor(SWNNode node) {
+        while (true) {
+            long step = ((long) node.pos - node.pre) / (2L * countDescendants(node) + 1);
+            if (step >= MIN_RELABEL_GAP || (node.parent == null && step >= 1)) {
+                assignCodes(node, node.pre, step);
+                return;
             }
-            else {
-                for (int j = 0; j < sortingTransaction.size(); j++) {
-                    if (df.get(i).get("Items").contains(sortingTransaction.get(j)) && !storeSortedT.contains(sortingTransaction.get(j))) {
-                        storeSortedT.add(sortingTransaction.get(j));
-                    } else {
-                        storeRemainingItems.add(sortingTransaction.get(j));
-                    }
-    
-                    if (j == sortingTransaction.size() - 1) {
-                        check = 1;
-                    }
-                }
-                if (check == 1) {
-                    storeRemainingItems.addAll(storeSortedT);
-                    storeSortedT = new ArrayList<>(storeRemainingItems);
-                }
+            if (node.parent == null) {
+                throw new IllegalStateException("SWN-tree has more nodes than pre/pos codes");
             }
+            node = node.parent;
         }
-    
-        Collections.reverse(storeSortedT);
-        sortingTransaction = new ArrayList<>(storeSortedT);
-        return sortingTransaction;
     }
 
-    public static void depthFirstSearch(SWNNode node) {
-        if (node != null) {
-            node.pre = preCounter++;
-            for (SWNNode child : node.childList) {
-                depthFirstSearch(child);
-            }
-            node.pos = postCounter++;
+    public static void insertTree(int[] transaction, SWNNode root, double tw, TailRing tail) {
+        SWNNode first = insertPath(transaction, root, tw, tail);
+        if (first != null) {
+            labelNewPath(first);
         }
     }
 
-    public static void insertTree(List<String> transaction, SWNNode root, double tw, List<TailElement> tail) {
+    // Adds the transaction to the tree without coding it; returns the first new node, if any
+    private static SWNNode insertPath(int[] transaction, SWNNode root, double tw, TailRing tail) {
         SWNNode currentNode = root;
-        for (String item : transaction) {
-            boolean found = false;
-            for (SWNNode child : currentNode.childList) {
-                if (child.name.equals(item)) {
-                    child.weight += tw;
-                    currentNode = child;
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) {
-                SWNNode newNode = new SWNNode(item, tw, 0, 0, new ArrayList<>(), currentNode);
+        SWNNode first = null;
+        for (int item : transaction) {
+            SWNNode child = currentNode.childList.find(item);
+            if (child != null) {
+                child.weight += tw;
+                child.count++;
+                currentNode = child;
+            } else {
+                SWNNode newNode = new SWNNode(item, tw, 0, 0, currentNode);
                 currentNode.childList.add(newNode);
                 currentNode = newNode;
+                root.descendants++;
+                if (first == null) {
+                    first = newNode;
+                }
             }
         }
         tail.add(new TailElement(transaction, currentNode, tw));
+        return first;
     }
 
-    public static void swnTreeConstruction(List<Map<String, String>> data, SWNNode root, List<TailElement> tail) {
-        for (int i = 0; i < data.size(); i++) {
-            List<String> sortedT = customSort(Arrays.asList(data.get(i).get("Items").split(", ")), data, i);
-            insertTree(sortedT, root, Double.parseDouble(data.get(i).get("tw")), tail);
+    public static void swnTreeConstruction(List<Transaction> window, SWNNode root, TailRing tail, WindowIndex index, ItemRank rank) {
+        for (Transaction t : window) {
+            index.add(t);
+        }
+        rank.rerank(index);
+        for (Transaction t : window) {
+            insertPath(rank.sort(t.items), root, t.tw, tail);
         }
         depthFirstSearch(root);
     }
 
-    public static SWNNode MaintainingSWNTree(List<Map<String, String>> window, SWNNode root, Map<String, String> newT, List<TailElement> tail, int originalPreCounter, int originalPostCounter) {
-        List<String> sortedT = customSort(Arrays.asList(newT.get("Items").split(", ")), window, window.size() - 1);
-        insertTree(sortedT, root, Double.parseDouble(newT.get("tw")), tail);
+    // Re-sorts the window under a fresh rank table and rebuilds the tree under the same root
+    public static void rebuildSWNTree(SWNNode root, TailRing tail, WindowIndex index, ItemRank rank) {
+        rank.rerank(index);
+        List<TailElement> window = new ArrayList<>(tail.size());
+        for (TailElement element : tail) {
+            window.add(element);
+        }
+        tail.clear();
+        root.childList = new SWNChildren();
+        root.descendants = 0;
+        for (TailElement element : window) {
+            insertPath(rank.sort(element.transaction), root, element.weight, tail);
+        }
         depthFirstSearch(root);
+    }
 
-        TailElement l = tail.get(0);
-        SWNNode N = l.node.parent;
-
-        while (N != null && !N.name.equals("root")) {
+    // Walks from the evicted transaction's node up to the root, dropping nodes no transaction uses any more
+    public static void evictTransaction(TailElement l) {
+        SWNNode N = l.node;
+        int removed = 0;
+        while (N.item != ItemDictionary.ROOT) {
+            SWNNode parent = N.parent;
             N.weight -= l.weight;
+            N.count--;
+            if (N.count == 0) {
+                parent.childList.remove(N);
+                removed++;
+            }
+            N = parent;
+        }
+        N.descendants -= removed;
+    }
 
-            if (N.weight <= 0) {
-                SWNNode NPrime = N.parent;
-                N.parent.childList.remove(N);
-                N = NPrime;
-            } else {
-                N = N.parent;
+    public static SWNNode MaintainingSWNTree(SWNNode root, Transaction newT, double minWs, TailRing tail, WindowIndex index, ItemRank rank) {
+        return MaintainingSWNTree(root, Collections.singletonList(newT), minWs, tail, index, rank);
+    }
+
+    // Slides the window by a whole batch: every transaction is inserted and the oldest one evicted,
+    // but the rank table is only checked once at the end of the batch
+    public static SWNNode MaintainingSWNTree(SWNNode root, List<Transaction> batch, double minWs, TailRing tail, WindowIndex index, ItemRank rank) {
+        for (Transaction t : batch) {
+            long start = MinerMetrics.start();
+            if (tail.isFull()) {
+                evictTransaction(tail.removeFirst());
+                MinerMetrics.add(MinerMetrics.Phase.EVICT, start);
+                start = MinerMetrics.start();
+            }
+            SWNNode first = insertPath(rank.sort(t.items), root, t.tw, tail);
+            index.add(t);
+            MinerMetrics.add(MinerMetrics.Phase.INSERT, start);
+            if (first != null) {
+                start = MinerMetrics.start();
+                labelNewPath(first);
+                MinerMetrics.add(MinerMetrics.Phase.RELABEL, start);
             }
         }
 
-        tail.remove(0);
-        removeNodeFromTree(root, l);
-        preCounter = originalPreCounter;
-        postCounter = originalPostCounter;
-        depthFirstSearch(root);
+        if (rank.isStale(index, minWs)) {
+            long start = MinerMetrics.start();
+            rebuildSWNTree(root, tail, index, rank);
+            MinerMetrics.add(MinerMetrics.Phase.RELABEL, start);
+        }
 
         return root;
     }
 
     /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-    public static List<List<String>> sortItemSet(List<List<String>> I_next, List<Map<List<String>, List<WLNode>>> new_WL) {
-        if (I_next.size() > 1) {
-            for (int i = 0; i < I_next.size() - 1; i++) {
-                int finalI = i;
-                for (int j = i + 1; j < I_next.size(); j++) {
-                    int finalJ = j;
-
-                    int pre_i = new_WL.stream()
-                                      .filter(entry -> entry.containsKey(I_next.get(finalI)))
-                                      .map(entry -> entry.get(I_next.get(finalI)).get(0).pre)
-                                      .findFirst()
-                                      .orElseThrow(NoSuchElementException::new);
-                    int pre_j = new_WL.stream()
-                                      .filter(entry -> entry.containsKey(I_next.get(finalJ)))
-                                      .map(entry -> entry.get(I_next.get(finalJ)).get(0).pre)
-                                      .findFirst()
-                                      .orElseThrow(NoSuchElementException::new);
-
-                    if (pre_i > pre_j) {
-                        // Swap elements in I_next
-                        List<String> temp = I_next.get(finalI);
-                        I_next.set(finalI, I_next.get(finalJ));
-                        I_next.set(finalJ, temp);
-                    }
-                }
-            }
-        }
-        return I_next;
+    public static WNList wlIntersection(WNList WL1, WNList WL2, double windowTTW, double minWS) {
+        // Node weights are raw tw sums, so the threshold is scaled up rather than each weight down
+        return WNList.intersect(WL1, WL2, minWS * windowTTW);
     }
 
-    public static List<Map<List<String>,List<WLNode>>> wlIntersection(Map<List<String>,List<WLNode>> WL1, Map<List<String>,List<WLNode>> WL2, List<Map<String, String>> window, double windowTTW, double minWS) {
-        List<Map<List<String>,List<WLNode>>> WL3 = new ArrayList<>();
-        List<WLNode> WL3_support = new ArrayList<>();
-        int k = -1, i = 0, j = 0;
-        int m = 0, n = 0;
-        List<WLNode> WNL1 = new ArrayList<>();
-        List<WLNode> WNL2 = new ArrayList<>();
-        List<String> i1 = new ArrayList<>();
-        List<String> i2 = new ArrayList<>();
-
-        for (Map.Entry<List<String>, List<WLNode>> entry : WL1.entrySet()) {
-            i1 = entry.getKey();
-            WNL1 = entry.getValue();
-            m = WNL1.size();
+    // Both item sets are kept sorted by item id, so the union is a merge
+    static int[] unionItemSet(int[] i1, int[] i2) {
+        int[] union = new int[i1.length + i2.length];
+        int a = 0, b = 0, n = 0;
+        while (a < i1.length || b < i2.length) {
+            int next;
+            if (b == i2.length || (a < i1.length && i1[a] < i2[b])) {
+                next = i1[a++];
+            } else if (a == i1.length || i2[b] < i1[a]) {
+                next = i2[b++];
+            } else {
+                next = i1[a++];
+                b++;
+            }
+            union[n++] = next;
         }
+        return Arrays.copyOf(union, n);
+    }
 
-        for (Map.Entry<List<String>, List<WLNode>> entry : WL2.entrySet()) {
-            i2 = entry.getKey();
-            WNL2 = entry.getValue();
-            n = WNL2.size();
+    public static void findFWPs(CandidateStore I_s, double min_ws, List<int[]> FWPs, double windowTTW) {
+        for (int i = I_s.size() - 1; i > 0; i--) {
+            CandidateStore next = extendClass(I_s, i, min_ws, FWPs, windowTTW);
+            if (!next.isEmpty()) {
+                findFWPs(next, min_ws, FWPs, windowTTW);
+            }
         }
+    }
 
-        double s = calculateWs(window, windowTTW, i1) + calculateWs(window, windowTTW, i2);
-
-        while (i < m && j < n) {
-            boolean check = false;
-            if (WNL2.get(j).pre < WNL1.get(i).pre) {
-                if (WNL2.get(j).pos > WNL1.get(i).pos) {
-                    if (k >= 0) {
-                        if (WNL2.get(j).pre == WL3_support.get(k).pre && WNL2.get(j).pos == WL3_support.get(k).pos) {
-                            WL3_support.get(k).weight += WNL1.get(i).weight;
-                            check = true;
-                        }
-                    }
-                    if (check == false) {
-                        k += 1;
-                        WL3_support.add(new WLNode(WNL2.get(j).pre, WNL2.get(j).pos, WNL1.get(i).weight));
-                    }
-                    i += 1;
-                } else {
-                    s -= WNL2.get(j).weight;
-                    j += 1;
+    // findFWPs for top-k mining: the threshold is re-read from topK before every join, so each
+    // itemset that makes the heap tightens the pruning of everything mined after it
+    public static void findTopKFWPs(CandidateStore I_s, TopKFWPs topK, double windowTTW) {
+        for (int i = I_s.size() - 1; i > 0; i--) {
+            // The threshold may have passed this prefix since it was joined, and its extensions with it
+            if (I_s.ws(i, windowTTW) < topK.threshold()) {
+                continue;
+            }
+            CandidateStore I_next = new CandidateStore(i);
+            WNList WL1 = I_s.list(i);
+            for (int j = i - 1; j >= 0; j--) {
+                double min_ws = topK.threshold();
+                if (I_s.ws(j, windowTTW) < min_ws) {
+                    continue;
+                }
+                WNList WL_result = wlIntersection(WL1, I_s.list(j), windowTTW, min_ws);
+                if (WL_result != null && WL_result.totalWeight / windowTTW >= min_ws) {
+                    topK.offer(WL_result.itemSet, WL_result.totalWeight / windowTTW);
+                    I_next.add(WL_result, I_s.key(j));
                 }
-            } else {
-                s -= WNL1.get(i).weight;
-                i += 1;
             }
-            if (s < minWS) {
-                return new ArrayList<>();
+            I_next.sort();
+            if (!I_next.isEmpty()) {
+                findTopKFWPs(I_next, topK, windowTTW);
             }
         }
-
-        if (!WL3_support.isEmpty()) {
-            Set<String> itemSet = new HashSet<>();
-            itemSet.addAll(i1);
-            itemSet.addAll(i2);
-            List<String> uniqueItemSet = new ArrayList<>(itemSet);
-            WL3.add(Collections.singletonMap(uniqueItemSet, WL3_support));
-        }
-        return WL3;
     }
 
-    public static void findFWPs(List<List<String>> I_s, double min_ws, List<Map<List<String>,List<WLNode>>> WN_list, List<List<String>> FWPs, List<Map<String, String>> window, List<TailElement> tail) {
-        double windowTTW = tail.stream().mapToDouble(node -> (int) node.weight).sum();
-        List<Map<List<String>,List<WLNode>>> new_WL = new ArrayList<>();
+    // findFWPs for closed and maximal mining. Every candidate carries its window slots, and each
+    // I_s[i] is checked before anything is joined onto it: if an item ranked below its newest one
+    // occurs in all its slots, neither it nor anything mined from it is closed and the branch is
+    // dropped. Every I_s[j] whose item occurs in all its slots is folded into its itemset instead
+    // of becoming a branch. In maximal mode the branch is also dropped when the itemset and all
+    // its possible extensions fit inside a maximal candidate found before, or are frequent together.
+    public static void findClosedFWPs(CandidateStore I_s, ClosedFWPs closed, double min_ws, List<int[]> FWPs, double windowTTW) {
+        findClosedFWPs(I_s, closed, closed.maximal() ? closed.found.all() : null, min_ws, FWPs, windowTTW);
+    }
 
-        for (int i = I_s.size() - 1; i > 0; i--) {
-            final int finalI = i;
+    // In maximal mode focus holds the candidates found so far that contain the prefix the members of
+    // I_s share, so the subsumption checks below only test the items past that prefix
+    private static void findClosedFWPs(CandidateStore I_s, ClosedFWPs closed, ClosedSetIndex.Focus focus, double min_ws, List<int[]> FWPs, double windowTTW) {
+        boolean[] folded = new boolean[I_s.size()];
+        int[] hut = closed.maximal() ? new int[closed.items.length] : null;
+        for (int i = I_s.size() - 1; i >= 0; i--) {
+            int[] itemSet = I_s.itemSet(i);
+            long[] tids = I_s.tidSet(i);
+            if (!closed.prefixClosed(I_s.key(i), itemSet, tids)) {
+                continue;
+            }
 
-            List<List<String>> I_next = new ArrayList<>();
+            int[] closure = itemSet;
             for (int j = i - 1; j >= 0; j--) {
-                final int finalJ = j;
-                List<Map<List<String>, List<WLNode>>> WL_result = wlIntersection(
-                    WN_list.stream()
-                           .filter(wl -> wl.containsKey(I_s.get(finalI)))
-                           .flatMap(wl -> wl.entrySet().stream())
-                           .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)),
-                    WN_list.stream()
-                           .filter(wl -> wl.containsKey(I_s.get(finalJ)))
-                           .flatMap(wl -> wl.entrySet().stream())
-                           .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)),
-                    window,
-                    windowTTW,
-                    min_ws
-                );
-                new_WL.addAll(WL_result);
-
-                for (Map<List<String>, List<WLNode>> item : WL_result) {
-                    if (!WL_result.isEmpty() && calculateWs(window, windowTTW, new ArrayList<>(item.keySet()).get(0)) >= min_ws) {
-                        FWPs.add(new ArrayList<>(item.keySet()).get(0));
-                        I_next.add(new ArrayList<>(item.keySet()).get(0));
-                        I_next = sortItemSet(I_next, new_WL);
+                folded[j] = ClosedFWPs.covers(I_s.tidSet(j), tids);
+                if (folded[j]) {
+                    closure = unionItemSet(closure, I_s.itemSet(j));
+                }
+            }
+            ClosedSetIndex.Focus memberFocus = null;
+            if (closed.maximal()) {
+                // hut holds the items the closure adds to the prefix, then the non-folded extensions
+                int added = 0;
+                hut[added++] = closed.item(I_s.key(i));
+                for (int j = i - 1; j >= 0; j--) {
+                    if (folded[j]) {
+                        hut[added++] = closed.item(I_s.key(j));
+                    }
+                }
+                int length = added;
+                for (int j = i - 1; j >= 0; j--) {
+                    if (!folded[j]) {
+                        hut[length++] = closed.item(I_s.key(j));
                     }
                 }
+                memberFocus = closed.found.narrow(focus, hut, 0, added);
+                if (closed.found.anyHolding(memberFocus, hut, added, length)) {
+                    continue;
+                }
+                // When the itemset with all its extensions is frequent, it is the only candidate here
+                if (length > added && closed.frequentWithAll(tids, I_s, folded, i, min_ws)) {
+                    int[] extensions = Arrays.copyOfRange(hut, added, length);
+                    Arrays.sort(extensions);
+                    closed.found.add(unionItemSet(closure, extensions));
+                    continue;
+                }
+            }
+
+            CandidateStore I_next = new CandidateStore(i);
+            WNList WL1 = closure == itemSet ? I_s.list(i) : I_s.list(i).withItemSet(closure);
+            for (int j = i - 1; j >= 0; j--) {
+                if (folded[j]) {
+                    continue;
+                }
+                WNList WL_result = wlIntersection(WL1, I_s.list(j), windowTTW, min_ws);
+                if (WL_result != null && WL_result.totalWeight / windowTTW >= min_ws) {
+                    I_next.add(WL_result, I_s.key(j), ClosedFWPs.and(tids, I_s.tidSet(j)));
+                }
             }
 
+            if (!closed.maximal()) {
+                FWPs.add(closure);
+            } else if (I_next.isEmpty() && !closed.found.anyHolding(memberFocus, hut, 0, 0)) {
+                // Nothing frequent lies above it; a superset through lower-ranked items is caught in finish()
+                closed.found.add(closure);
+            }
             if (!I_next.isEmpty()) {
-                findFWPs(I_next, min_ws, new_WL, FWPs, window, tail);
+                I_next.sort();
+                findClosedFWPs(I_next, closed, memberFocus, min_ws, FWPs, windowTTW);
             }
         }
     }
-    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-    public static List<List<String>> sortI1ByWs(List<List<String>> I1, List<Map<List<String>, List<WLNode>>> WNList, double windowTTW) {
-        for (int i = 0; i < I1.size() - 1; i++) {
-            final int finalI = i;
-            for (int j = i + 1; j < I1.size(); j++) {
-                final int finalJ = j;
-                double wsi = WNList.stream()
-                                   .filter(row -> row.containsKey(Collections.singletonList(I1.get(finalI))))
-                                   .flatMap(tuple -> tuple.get(Collections.singletonList(I1.get(finalI))).stream())
-                                   .mapToDouble(node -> node.weight)
-                                   .sum() / windowTTW;
-                double wsj = WNList.stream()
-                                   .filter(row -> row.containsKey(Collections.singletonList(I1.get(finalJ))))
-                                   .flatMap(tuple -> tuple.get(Collections.singletonList(I1.get(finalJ))).stream())
-                                   .mapToDouble(node -> node.weight)
-                                   .sum() / windowTTW;
-
-                if (wsj > wsi) {
-                    // Swap elements in I1
-                    List<String> temp = I1.get(finalI);
-                    I1.set(finalI, I1.get(finalJ));
-                    I1.set(finalJ, temp);
-                }
+    // Joins I_s[i] with every candidate before it. The frequent joins go to FWPs and form the
+    // class mined next; classes only read their own WN-lists, so they can be mined independently.
+    static CandidateStore extendClass(CandidateStore I_s, int i, double min_ws, List<int[]> FWPs, double windowTTW) {
+        CandidateStore I_next = new CandidateStore(i);
+        WNList WL1 = I_s.list(i);
+        for (int j = i - 1; j >= 0; j--) {
+            WNList WL_result = wlIntersection(WL1, I_s.list(j), windowTTW, min_ws);
+
+            // The WN-list weight of an itemset is its weighted support times the window's TTW
+            if (WL_result != null && WL_result.totalWeight / windowTTW >= min_ws) {
+                FWPs.add(WL_result.itemSet);
+                // The join's nodes are those of I_s[j], so it takes I_s[j]'s place in the order
+                I_next.add(WL_result, I_s.key(j));
             }
         }
-        return I1;
+        I_next.sort();
+        return I_next;
     }
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-    public static void wnListCreate(SWNNode root, List<String> item, List<WLNode> wnLSupport) {
-        if (root != null && !"root".equals(root.name)) {
-            if (item.equals(Arrays.asList(root.name))) {
-                wnLSupport.add(new WLNode(root.pre, root.pos, root.weight));
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // One pre-order pass appends every node to the WN-list of its item, so each list comes out sorted by pre
+    public static void wnListCreate(SWNNode root, WNList[] byItem) {
+        if (root != null && root.item != ItemDictionary.ROOT) {
+            if (root.item < byItem.length && byItem[root.item] != null) {
+                byItem[root.item].add(root.pre, root.pos, root.weight);
             }
         }
         for (SWNNode child : root.childList) {
-            wnListCreate(child, item, wnLSupport);
+            wnListCreate(child, byItem);
         }
     }
 
-    public static double calculateWs(List<Map<String, String>> window, double windowTTW, List<String> itemSet) {
-        double ws = 0;
-        for (Map<String, String> transaction : window) {
-            int checkCount = 0;
-            for (String item : itemSet) {
-                if (transaction.get("Items").contains(item)) {
-                    checkCount++;
-                }
-            }
-            if (checkCount == itemSet.size()) {
-                ws += Double.parseDouble(transaction.get("tw"));
+    public static double calculateWs(WindowIndex index, double windowTTW, int[] itemSet) {
+        return index.weightedSupport(itemSet) / windowTTW;
+    }
+
+    // The 1-FWPs come straight from the per-item weights the window index keeps
+    public static CandidateStore generate1FWPs(SWNNode root, double minWs, WindowIndex index, ItemRank rank, List<int[]> fwps) {
+        return generate1FWPs(byItem -> wnListCreate(root, byItem), minWs, index, rank, fwps);
+    }
+
+    public static CandidateStore generate1FWPs(PooledSWNTree tree, double minWs, WindowIndex index, ItemRank rank, List<int[]> fwps) {
+        return generate1FWPs(tree::wnListCreate, minWs, index, rank, fwps);
+    }
+
+    // wnLists fills the lists from whichever tree layout holds the window
+    private static CandidateStore generate1FWPs(Consumer<WNList[]> wnLists, double minWs, WindowIndex index, ItemRank rank, List<int[]> fwps) {
+
+        long start = MinerMetrics.start();
+        double windowTTW = index.ttw();
+
+        WNList[] byItem = new WNList[index.itemCount()];
+        List<Integer> items = new ArrayList<>();
+        for (int item = 0; item < byItem.length; item++) {
+            if (index.itemWeight(item) > 0 && index.itemWeight(item) / windowTTW >= minWs) {
+                byItem[item] = new WNList(new int[]{item}, 16);
+                items.add(item);
             }
         }
-        ws /= windowTTW;
-        return ws;
+
+        MinerMetrics.add(MinerMetrics.Phase.SCAN, start);
+        start = MinerMetrics.start();
+        wnLists.accept(byItem);
+        MinerMetrics.add(MinerMetrics.Phase.WNLIST, start);
+        MinerMetrics metrics = MinerMetrics.active();
+        if (metrics != null) {
+            metrics.recordWNLists(byItem);
+        }
+
+        start = MinerMetrics.start();
+        // findFWPs pairs each item with the ones before it, which must sit above it in the tree
+        items.sort(Comparator.comparingInt(rank::rank));
+        CandidateStore I1 = new CandidateStore(items.size());
+        for (int item : items) {
+            fwps.add(byItem[item].itemSet);
+            I1.add(byItem[item], rank.rank(item));
+        }
+        MinerMetrics.add(MinerMetrics.Phase.SCAN, start);
+        return I1;
+    }
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public static List<int[]> FWPODS(SWNNode root, Transaction newT, double minWs, TailRing tail, WindowIndex index, ItemRank rank, ItemDictionary dictionary) {
+        return FWPODS(root, Collections.singletonList(newT), minWs, tail, index, rank, dictionary, MiningOptions.sequential());
     }
 
-    public static void scanTreeForI1(SWNNode root, List<List<String>> fwps, List<Map<List<String>,List<WLNode>>> wnList, double windowTTW, double minWs, List<Map<String, String>> window) {
-        boolean check = true;
-        if (root != null && !"root".equals(root.name)) {
-            for (List<String> x : fwps) {
-                if (Arrays.asList(root.name).equals(x)) {
-                    check = false;
-                }
-            }
-            if (check && calculateWs(window, windowTTW, Arrays.asList(root.name)) >= minWs) {
-                fwps.add(Arrays.asList(root.name));
+    // Applies the whole batch to the window, then mines the resulting window once
+    public static List<int[]> FWPODS(SWNNode root, List<Transaction> batch, double minWs, TailRing tail, WindowIndex index, ItemRank rank, ItemDictionary dictionary, MiningOptions options) {
+
+        MinerMetrics metrics = MinerMetrics.active();
+        if (metrics != null) {
+            metrics.beginSlide();
+        }
+
+        List<int[]> fwps;
+        if (options.incremental != null) {
+            fwps = slideIncremental(root, batch, minWs, tail, index, rank, dictionary, options);
+        } else {
+            SWNNode tree = MaintainingSWNTree(root, batch, minWs, tail, index, rank);
+
+            if (options.printTail) {
+                printTail(tail, dictionary);
             }
+
+            fwps = mineWindow(byItem -> wnListCreate(tree, byItem), minWs, index, rank, options);
         }
-        for (SWNNode child : root.childList) {
-            scanTreeForI1(child, fwps, wnList, windowTTW, minWs, window);
+
+        if (metrics != null) {
+            metrics.endSlide(batch.size(), root.descendants, tail.size(), fwps.size());
         }
+        return fwps;
     }
 
-    public static void generate1FWPs(SWNNode root, double minWs, List<TailElement> tail, List<Map<String, String>> window, List<List<String>> fwps, List<Map<List<String>,List<WLNode>>> wnList) {
+    // FWPODS on a pooled tree, which keeps its own tail. Incremental mining never reads the tree,
+    // so it stays with the object tree.
+    public static List<int[]> FWPODS(PooledSWNTree tree, List<Transaction> batch, double minWs, WindowIndex index, ItemRank rank, MiningOptions options) {
+        if (options.incremental != null) {
+            throw new IllegalArgumentException("Incremental mining runs on the object tree");
+        }
+        MinerMetrics metrics = MinerMetrics.active();
+        if (metrics != null) {
+            metrics.beginSlide();
+        }
 
-        double windowTTW = tail.stream().mapToDouble(node -> (int) node.weight).sum();
+        tree.slide(batch, minWs, index, rank);
+        List<int[]> fwps = mineWindow(tree::wnListCreate, minWs, index, rank, options);
 
-        scanTreeForI1(root, fwps, wnList, windowTTW, minWs, window);
+        if (metrics != null) {
+            metrics.endSlide(batch.size(), tree.nodeCount(), tree.tailSize(), fwps.size());
+        }
+        return fwps;
+    }
 
-        for (List<String> item : fwps) {
-            List<WLNode> wnLSupport = new ArrayList<>();
-            wnListCreate(root, item, wnLSupport);
-            wnList.add(Collections.singletonMap(item, wnLSupport));
+    // Mines the window whose WN-lists wnLists builds: top-k, on the pool or on this thread
+    private static List<int[]> mineWindow(Consumer<WNList[]> wnLists, double minWs, WindowIndex index, ItemRank rank, MiningOptions options) {
+        if (options.topK != null) {
+            return mineTopK(wnLists, index, rank, options.topK);
         }
+        if (options.closed != null) {
+            return mineClosed(wnLists, minWs, index, rank, options.closed);
+        }
+        List<int[]> fwps = new ArrayList<>();
+
+        CandidateStore I1 = generate1FWPs(wnLists, minWs, index, rank, fwps);
 
-        fwps = sortI1ByWs(fwps, wnList, windowTTW);
+        long start = MinerMetrics.start();
+        if (options.pool != null) {
+            fwps.addAll(options.pool.invoke(new FWPMiningTask(I1, minWs, index.ttw(), options.parallelThreshold)));
+        } else {
+            findFWPs(I1, minWs, fwps, index.ttw());
+        }
+        MinerMetrics.add(MinerMetrics.Phase.MINE, start);
+        return fwps;
     }
-    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-    public static List<List<String>> FWPODS(SWNNode root, Map<String, String> newT, double minWs, List<TailElement> tail, List<Map<String, String>> window, Map<String, Double> itemWeights, int originalPreCounter, int originalPostCounter) {
+    // The 1-FWPs are scanned at the warm-start threshold and all offered before any join, so the
+    // recursive mining starts from the best threshold the single items give
+    private static List<int[]> mineTopK(Consumer<WNList[]> wnLists, WindowIndex index, ItemRank rank, TopKFWPs topK) {
+        topK.begin(index);
+        double windowTTW = index.ttw();
+        CandidateStore I1 = generate1FWPs(wnLists, topK.threshold(), index, rank, new ArrayList<>());
 
-        // Assuming maintaining_swn_tree and other related functions are defined appropriately
-        root = MaintainingSWNTree(window, root, newT, tail, originalPreCounter, originalPostCounter);
+        long start = MinerMetrics.start();
+        for (int id = 0; id < I1.size(); id++) {
+            topK.offer(I1.itemSet(id), I1.ws(id, windowTTW));
+        }
+        findTopKFWPs(I1, topK, windowTTW);
+        MinerMetrics.add(MinerMetrics.Phase.MINE, start);
+        return topK.finish();
+    }
 
-        printTail(tail);
+    private static List<int[]> mineClosed(Consumer<WNList[]> wnLists, double minWs, WindowIndex index, ItemRank rank, ClosedFWPs closed) {
+        CandidateStore I1 = generate1FWPs(wnLists, minWs, index, rank, new ArrayList<>());
 
-        List<List<String>> fwps = new ArrayList<>();
-        List<Map<List<String>,List<WLNode>>> wnList = new ArrayList<>();
+        long start = MinerMetrics.start();
+        closed.begin(index, I1, minWs);
+        List<int[]> fwps = new ArrayList<>();
+        findClosedFWPs(I1, closed, minWs, fwps, index.ttw());
+        fwps = closed.finish(fwps);
+        MinerMetrics.add(MinerMetrics.Phase.MINE, start);
+        return fwps;
+    }
 
-        generate1FWPs(root, minWs, tail, window, fwps, wnList);
+    // The tree still takes the slide so that a full mine stays possible; the FWPs themselves come
+    // from the incremental miner, whose delta for this slide is left in lastDelta()
+    private static List<int[]> slideIncremental(SWNNode root, List<Transaction> batch, double minWs, TailRing tail, WindowIndex index, ItemRank rank, ItemDictionary dictionary, MiningOptions options) {
+        IncrementalFWPMiner miner = options.incremental;
+        List<int[]> inserted = new ArrayList<>(batch.size());
+        for (Transaction t : batch) {
+            inserted.add(t.items);
+        }
+        List<int[]> evicted = new ArrayList<>();
+        int evictions = Math.max(0, tail.size() + batch.size() - tail.capacity());
+        for (int i = 0; i < evictions; i++) {
+            evicted.add(i < tail.size() ? tail.get(i).transaction : inserted.get(i - tail.size()));
+        }
 
-        List<List<String>> I1 = new ArrayList<>(fwps);
+        MaintainingSWNTree(root, batch, minWs, tail, index, rank);
 
-        findFWPs(I1, minWs, wnList, fwps, window, tail);
+        if (options.printTail) {
+            printTail(tail, dictionary);
+        }
 
-        return fwps;
+        long start = MinerMetrics.start();
+        miner.slide(inserted, evicted);
+        MinerMetrics.add(MinerMetrics.Phase.MINE, start);
+        return miner.frequentItemSets();
     }
 
-    public static void printSWNTree(SWNNode node, int indent) {
+    public static void printSWNTree(SWNNode node, int indent, ItemDictionary dictionary) {
         if (node != null) {
-            if ("root".equals(node.name)) {
+            if (node.item == ItemDictionary.ROOT) {
                 for (int i = 0; i < indent; i++) {
                     System.out.print("  ");
                 }
-                System.out.println(node.name);
+                System.out.println(dictionary.name(node.item));
             } else {
                 for (int i = 0; i < indent; i++) {
                     System.out.print("  ");
                 }
                 System.out.printf("%s (Weight: %.2f, Pre: %d, Post: %d)%n",
-                        node.name, node.weight, node.pre, node.pos);
+                        dictionary.name(node.item), node.weight, node.pre, node.pos);
             }
             for (SWNNode child : node.childList) {
-                printSWNTree(child, indent + 1);
+                printSWNTree(child, indent + 1, dictionary);
             }
         }
     }
 
-    public static void printTail(List<TailElement> tail) {
+    public static void printTail(TailRing tail, ItemDictionary dictionary) {
         System.out.println("TAIL:");
         for (int i = 0; i < tail.size(); i++) {
-            List<String> transaction = tail.get(i).transaction;
+            int[] transaction = tail.get(i).transaction;
             SWNNode node = tail.get(i).node;
             System.out.printf("TAIL [T%d]: The sorted transaction of T%d is {%s}%n",
-                    i + 1, i + 1, String.join(" <-> ", transaction));
+                    i + 1, i + 1, String.join(" <-> ", dictionary.decode(transaction)));
             System.out.printf("T%d: root", i + 1);
             while (node != null) {
-                if (!"root".equals(node.name)) {
+                if (node.item != ItemDictionary.ROOT) {
                     node = node.parent;
                 } else {
                     break;
                 }
             }
-            for(String item : transaction) {
+            for(int item : transaction) {
                 if(node != null) {
-                    SWNNode childNode = node.childList.stream()
-                            .filter(child -> child.name.equals(item))
-                            .findFirst()
-                            .orElse(null);
+                    SWNNode childNode = node.childList.find(item);
                     if (childNode != null) {
-                        System.out.printf(" <-> %s, %.2f", item, childNode.weight);
+                        System.out.printf(" <-> %s, %.2f", dictionary.name(item), childNode.weight);
                         node = childNode;
                     } else {
-                        System.out.printf(" <-> %s, 0.00", item);
+                        System.out.printf(" <-> %s, 0.00", dictionary.name(item));
                     }
                 }
                 else {
-                    System.out.printf(" <-> %s, 0.00", item);
+                    System.out.printf(" <-> %s, 0.00", dictionary.name(item));
                 }
             }
             System.out.println();
         }
     }
 
-    public static void main(String[] args) {
-        int windowSize = 990;
-        double minWS = 0.3;
-
-        List<Map<String, String>> df = readTransactionData("Custom_data.csv");
-        Map<String, Double> itemWeights = readItemWeights("Custom_weights.csv");
-        df = calculateTw(df, itemWeights);
+    // Binary columnar files carry their own dictionary; a CSV takes it from the weights file
+    public static TransactionSource openTransactions(String dataFile, String weightsFile) throws IOException {
+        if (dataFile.endsWith(".fwpt")) {
+            return new ColumnarTransactionReader(Paths.get(dataFile));
+        }
+        return new TransactionReader(Paths.get(dataFile), ItemDictionary.fromWeights(readItemWeights(weightsFile)));
+    }
 
-        int originalPreCounter = preCounter;
-        int originalPostCounter = postCounter;
+    // Reopens the stream a snapshot was taken from, positioned after the last transaction it holds.
+    // A CSV is read with the snapshot's dictionary, so the skipped rows need no parsing.
+    public static TransactionSource openTransactions(String dataFile, MinerSnapshot snapshot) throws IOException {
+        TransactionSource source = dataFile.endsWith(".fwpt")
+                ? new ColumnarTransactionReader(Paths.get(dataFile))
+                : new TransactionReader(Paths.get(dataFile), snapshot.dictionary);
+        ItemDictionary dictionary = source.dictionary();
+        for (int id = 0; id < snapshot.dictionary.size(); id++) {
+            if (id >= dictionary.size() || !dictionary.name(id).equals(snapshot.dictionary.name(id))) {
+                source.close();
+                throw new IOException("Snapshot does not match the items of " + dataFile);
+            }
+        }
+        if (source.skip(snapshot.added) < snapshot.added) {
+            source.close();
+            throw new IOException("Snapshot is ahead of " + dataFile + ": it holds " + snapshot.added + " transactions");
+        }
+        return source;
+    }
 
-        List<Map<String, String>> window = df.subList(0, 0 + windowSize);
-        int windowNumber = 1;
+    // A resumed miner keeps the windows it reported up to its snapshot and appends the rest;
+    // otherwise the results file is started afresh
+    public static ResultSink openResults(String resultsFile, ItemDictionary dictionary, MinerSnapshot snapshot) throws IOException {
+        Path file = Paths.get(resultsFile);
+        if (resultsFile.endsWith(".fwpr")) {
+            return snapshot != null ? BinaryResultSink.resume(file, dictionary, snapshot.slides) : new BinaryResultSink(file, dictionary);
+        }
+        return snapshot != null ? TextResultSink.resume(file, dictionary, snapshot.slides) : new TextResultSink(file, dictionary);
+    }
 
-        System.out.println("Window " + windowNumber + ":");
-        window.forEach(System.out::println);
+    public static String format(Transaction t, ItemDictionary dictionary) {
+        return "TID=" + t.tid + ", Items=" + dictionary.decode(t.items) + ", tw=" + t.tw;
+    }
 
-        SWNNode swnTree = new SWNNode("root", 0, 0, 0, new ArrayList<>(), null);
-        List<TailElement> tail = new ArrayList<>();
+    // key=value arguments, named as in the other tools, e.g.
+    //   java miningFWPsFromBenmarkDataset data=Large_data.fwpt window=5000 minWs=0.2
+    //       batch=100 pooled=true results=Large_fwps.fwpr snapshot=Large.fwps
+    public static void main(String[] args) {
+        Arguments arguments = new Arguments(args);
+        int windowSize = arguments.getInt("window", 990);
+        double minWS = arguments.getDouble("minWs", 0.3);
+        // Mine once every batch arrivals, or once the oldest pending arrival is maxDelay ms old
+        int batchSize = arguments.getInt("batch", 1);
+        long maxDelayMillis = arguments.getLong("maxDelay", 0);
+        int miningThreads = arguments.getInt("threads", Runtime.getRuntime().availableProcessors());
+        // Keep the FWPs between slides and report what each slide changed instead of re-mining
+        boolean incrementalMining = arguments.getBoolean("incremental", false);
+        // Mine the topK itemsets of highest ws (at least minWs) instead of every FWP; 0 turns it off
+        int topK = arguments.getInt("topK", 0);
+        // Report only the closed FWPs (no superset with the same ws) or only the maximal ones (no
+        // frequent superset) instead of every FWP; "all" keeps the full output
+        String outputMode = arguments.get("outputMode", "all");
+        // Per-slide latency and tree gauges, written as JSON to metrics every metricsPeriod ms (and
+        // sent to JFR as fwp.Slide events); without it the miner is uninstrumented
+        String metricsFile = arguments.get("metrics", null);
+        long metricsPeriodMillis = arguments.getLong("metricsPeriod", 10_000);
+        // Every window's FWPs go to results (binary when it ends in .fwpr) from a writer thread;
+        // the miner only blocks once resultQueue windows are waiting to be written
+        String resultsFile = arguments.get("results", "Custom_fwps.txt");
+        int resultQueue = arguments.getInt("resultQueue", 64);
+        // Print every window, arrival and tail path to stdout, as slow as that is
+        boolean debugDumps = arguments.getBoolean("debugDumps", false);
+        // Keep the tree in pooled primitive columns (off the heap with offHeap) so sliding
+        // allocates nothing; tail dumps and incremental mining need the object tree
+        boolean pooledTree = arguments.getBoolean("pooled", false);
+        boolean offHeapTree = arguments.getBoolean("offHeap", false);
+        // Checkpoint the whole miner to snapshot every snapshotPeriod ms from a background
+        // thread; if the file is there at start, the miner resumes from it instead of rebuilding
+        String snapshotFile = arguments.get("snapshot", null);
+        long snapshotPeriodMillis = arguments.getLong("snapshotPeriod", 60_000);
+
+        // Either the CSV pair or a file converted by ColumnarTransactionWriter
+        String dataFile = arguments.get("data", "Custom_data.csv");
+        String weightsFile = arguments.get("weights", "Custom_weights.csv");
+        arguments.rejectUnknown();
+        if (incrementalMining && (pooledTree || offHeapTree)) {
+            throw new IllegalArgumentException("incremental mining needs the object tree, not pooled or offHeap");
+        }
 
-        swnTreeConstruction(window, swnTree, tail);
+        MinerSnapshot snapshot = null;
+        try {
+            if (snapshotFile != null && Files.exists(Paths.get(snapshotFile))) {
+                snapshot = MinerSnapshot.read(Paths.get(snapshotFile));
+                if (snapshot.windowSize != windowSize) {
+                    throw new IOException("Snapshot " + snapshotFile + " was taken with window size " + snapshot.windowSize);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
 
-        printTail(tail);
+        // Transactions are streamed: only the current window is ever held in memory
+        try (TransactionSource reader = snapshot != null ? openTransactions(dataFile, snapshot) : openTransactions(dataFile, weightsFile);
+             ResultSink sink = new AsyncResultSink(openResults(resultsFile, reader.dictionary(), snapshot), resultQueue)) {
+            ItemDictionary dictionary = reader.dictionary();
+            // ArrayDeque is a ring buffer, so sliding the window never shifts it
+            Deque<Transaction> window = new ArrayDeque<>(windowSize);
+            SWNNode swnTree = createRoot();
+            TailRing tail = new TailRing(windowSize);
+            WindowIndex index;
+            ItemRank rank;
+            PooledSWNTree pooled = null;
+            int windowNumber;
+
+            if (snapshot != null) {
+                // Everything comes back as it was saved, so nothing is sorted or ranked again
+                index = snapshot.restoreIndex();
+                rank = snapshot.restoreRank();
+                for (int i = 0; i < index.size(); i++) {
+                    window.addLast(index.transaction(i));
+                }
+                if (pooledTree || offHeapTree) {
+                    pooled = snapshot.restorePooled(offHeapTree);
+                } else {
+                    snapshot.restoreTree(swnTree, tail);
+                }
+                windowNumber = (int) (snapshot.added - window.size() + 1);
+            } else {
+                while (window.size() < windowSize && reader.next()) {
+                    window.addLast(reader.transaction());
+                }
+                index = new WindowIndex(windowSize, dictionary.size());
+                rank = new ItemRank(dictionary.size());
+                if (pooledTree || offHeapTree) {
+                    pooled = new PooledSWNTree(windowSize, windowSize * 4, offHeapTree);
+                    pooled.build(new ArrayList<>(window), index, rank);
+                } else {
+                    swnTreeConstruction(new ArrayList<>(window), swnTree, tail, index, rank);
+                }
+                windowNumber = 1;
+            }
 
-        for (int i = 1; i <= df.size() - windowSize; i++) {
-            Map<String, String> newTransaction = new HashMap<>();
-            preCounter = originalPreCounter;
-            postCounter = originalPostCounter;
+            if (debugDumps) {
+                System.out.println("Window " + windowNumber + ":");
+                window.forEach(t -> System.out.println(format(t, dictionary)));
+                if (pooled == null) {
+                    printTail(tail, dictionary);
+                }
+            }
 
-            newTransaction = df.get(i + windowSize);
-            System.out.println("New Transaction: " + newTransaction);
+            MiningOptions options;
+            if (incrementalMining) {
+                IncrementalFWPMiner miner = new IncrementalFWPMiner(index, minWS);
+                miner.initialize();
+                options = MiningOptions.incremental(miner);
+            } else if (topK > 0) {
+                options = MiningOptions.topK(new TopKFWPs(topK, minWS));
+            } else if (!outputMode.equals("all")) {
+                options = MiningOptions.closed(new ClosedFWPs(ClosedFWPs.Mode.valueOf(outputMode.toUpperCase())));
+            } else if (miningThreads > 1) {
+                // Only plain mining runs on the pool, so it is made only for it
+                options = MiningOptions.parallel(new ForkJoinPool(miningThreads));
+            } else {
+                options = MiningOptions.sequential();
+            }
+            options.printTail = debugDumps;
+            try {
+                MinerMetrics metrics = null;
+                ScheduledExecutorService reporter = null;
+                if (metricsFile != null) {
+                    metrics = new MinerMetrics();
+                    MinerMetrics.install(metrics);
+                    reporter = metrics.report(Paths.get(metricsFile), metricsPeriodMillis);
+                }
+                SlideBatcher batcher = pooled != null
+                        ? new SlideBatcher(pooled, index, rank, dictionary, minWS, batchSize, maxDelayMillis, options, sink)
+                        : new SlideBatcher(swnTree, tail, index, rank, dictionary, minWS, batchSize, maxDelayMillis, options, sink);
+                SnapshotWriter snapshots = null;
+                if (snapshot != null) {
+                    batcher.resumeAt(snapshot.slides);
+                }
+                if (snapshotFile != null) {
+                    snapshots = new SnapshotWriter(Paths.get(snapshotFile), snapshotPeriodMillis, sink);
+                    batcher.snapshotTo(snapshots);
+                }
 
-            window = df.subList(i, i + windowSize);
-            windowNumber = i + 1;
+                while (reader.next()) {
+                    Transaction newTransaction = reader.transaction();
+                    if (debugDumps) {
+                        System.out.println("New Transaction: " + format(newTransaction, dictionary));
+                    }
 
-            System.out.println("Window " + windowNumber + ":");
-            window.forEach(System.out::println);
+                    window.removeFirst();
+                    window.addLast(newTransaction);
+                    windowNumber++;
 
-            List<List<String>> fwps = FWPODS(swnTree, newTransaction, minWS, tail, window, itemWeights, originalPreCounter, originalPostCounter);
+                    List<int[]> fwps = batcher.offer(newTransaction);
+                    if (fwps != null && debugDumps) {
+                        System.out.println("Window " + windowNumber + ":");
+                        window.forEach(t -> System.out.println(format(t, dictionary)));
+                        if (options.incremental != null) {
+                            System.out.println(options.incremental.lastDelta());
+                        }
+                    }
+                }
+                batcher.flush();
+                if (snapshots != null) {
+                    // The stream has ended, so the last word is a snapshot of the final window; a stream
+                    // too short to fill one has nothing to resume
+                    snapshots.close();
+                    if (index.size() == windowSize) {
+                        sink.flush();
+                        batcher.snapshot().write(Paths.get(snapshotFile));
+                    }
+                }
+                if (metrics != null) {
+                    reporter.shutdown();
+                    metrics.writeSnapshot(Paths.get(metricsFile));
+                }
+            } finally {
+                if (options.pool != null) {
+                    options.pool.shutdown();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 }
@@ -0,0 +1,84 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Every window of a few seeded streams, mined in full, closed and maximal mode, against a brute
+// force over all itemsets of the window: the full output is every itemset of ws >= minWs, the
+// closed one those without a proper superset in as many transactions, the maximal one those
+// without a frequent proper superset.
+class ClosedFWPsTest {
+    static final int ITEMS = 10;
+    static final int WINDOW = 40;
+    static final int BATCH = 5;
+    static final double MIN_WS = 0.15;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("closed-test");
+        for (long seed : new long[]{3, 17, 29}) {
+            Path[] dataset = TestSupport.writeDataset(Files.createDirectories(dir.resolve("s" + seed)), 300, ITEMS, seed == 3 ? 6 : 0, seed);
+            List<Transaction> stream = TestSupport.readAll(dataset);
+            ItemDictionary dictionary = TestSupport.dictionary(dataset);
+            // Itemsets reported per mode, to see the streams tell the modes apart
+            long[] reported = new long[3];
+            String[] modes = {"all", "closed", "maximal"};
+            for (int m = 0; m < modes.length; m++) {
+                String mode = modes[m];
+                MiningOptions options = mode.equals("all") ? MiningOptions.sequential()
+                        : MiningOptions.closed(new ClosedFWPs(ClosedFWPs.Mode.valueOf(mode.toUpperCase())));
+                CollectingResultSink sink = new CollectingResultSink();
+                mine(stream, dictionary, options, sink);
+                TestSupport.check(!sink.results().isEmpty(), mode + ": no window mined");
+                for (WindowResult result : sink.results()) {
+                    TestSupport.Supports supports = new TestSupport.Supports(TestSupport.window(stream, result, WINDOW), ITEMS);
+                    List<Integer> expected = expected(supports, mode);
+                    List<Integer> actual = TestSupport.masks(result.fwps);
+                    TestSupport.check(expected.equals(actual), "seed " + seed + ", " + mode + ", window " + result.slide
+                            + ": " + actual.size() + " itemsets instead of " + expected.size());
+                    reported[m] += actual.size();
+                }
+            }
+            TestSupport.check(reported[2] < reported[1] && reported[1] < reported[0], "seed " + seed + ": the modes report alike");
+        }
+        System.out.println("ClosedFWPsTest passed");
+    }
+
+    static void mine(List<Transaction> stream, ItemDictionary dictionary, MiningOptions options, ResultSink sink) throws IOException {
+        WindowIndex index = new WindowIndex(WINDOW, dictionary.size());
+        ItemRank rank = new ItemRank(dictionary.size());
+        SWNNode root = miningFWPsFromBenmarkDataset.createRoot();
+        TailRing tail = new TailRing(WINDOW);
+        miningFWPsFromBenmarkDataset.swnTreeConstruction(new ArrayList<>(stream.subList(0, WINDOW)), root, tail, index, rank);
+        SlideBatcher batcher = new SlideBatcher(root, tail, index, rank, dictionary, MIN_WS, BATCH, 0, options, sink);
+        for (Transaction t : stream.subList(WINDOW, stream.size())) {
+            batcher.offer(t);
+        }
+        batcher.flush();
+    }
+
+    static List<Integer> expected(TestSupport.Supports supports, String mode) {
+        List<Integer> expected = new ArrayList<>();
+        for (int set = 1; set < 1 << ITEMS; set++) {
+            if (!supports.frequent(set, MIN_WS)) {
+                continue;
+            }
+            boolean keep = true;
+            for (int item = 0; item < ITEMS && keep; item++) {
+                int superset = set | 1 << item;
+                if (superset == set) {
+                    continue;
+                }
+                if (mode.equals("closed")) {
+                    keep = supports.count[superset] < supports.count[set];
+                } else if (mode.equals("maximal")) {
+                    keep = !supports.frequent(superset, MIN_WS);
+                }
+            }
+            if (keep) {
+                expected.add(set);
+            }
+        }
+        return expected;
+    }
+}
@@ -0,0 +1,112 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// The pooled tree, on and off the heap, must mine every window exactly as the object tree, in the
+// same order, also on a pool; after every slide both trees must hold as many nodes as the object
+// tree really has. The window is small against the item count so ranks go stale and trees rebuild.
+// A last stream has rows of more items than the pooled tree's first scratch array holds.
+class PooledTreeTest {
+    static final int WINDOW = 30;
+    static final int BATCH = 4;
+    static final double MIN_WS = 0.1;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("pooled-test");
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (long seed : new long[]{7, 41, 0}) {
+                Path sub = Files.createDirectories(dir.resolve("s" + seed));
+                Path[] dataset = seed == 0 ? writeWideDataset(sub) : TestSupport.writeDataset(sub, 500, 12, 5, seed);
+                List<Transaction> stream = TestSupport.readAll(dataset);
+                ItemDictionary dictionary = TestSupport.dictionary(dataset);
+                CollectingResultSink expected = new CollectingResultSink();
+                CollectingResultSink pooled = new CollectingResultSink();
+                CollectingResultSink offHeap = new CollectingResultSink();
+                CollectingResultSink parallel = new CollectingResultSink();
+                compare(stream, dictionary, expected, pooled, offHeap, parallel, pool);
+                TestSupport.check(expected.results().stream().anyMatch(r -> !r.fwps.isEmpty()), "seed " + seed + ": nothing frequent");
+                TestSupport.checkSameResults(expected.results(), pooled.results(), "seed " + seed + ", pooled");
+                TestSupport.checkSameResults(expected.results(), offHeap.results(), "seed " + seed + ", offHeap");
+                TestSupport.checkSameResults(expected.results(), parallel.results(), "seed " + seed + ", pooled on a pool");
+            }
+        } finally {
+            pool.shutdown();
+        }
+        System.out.println("PooledTreeTest passed");
+    }
+
+    // Rows of a few of six heavy items, and every 40th row all 300 items, unsorted: wider than any
+    // window before it, and light enough that the items only it holds never turn frequent
+    static Path[] writeWideDataset(Path dir) throws IOException {
+        final int wide = 300;
+        Random random = new Random(13);
+        List<String> weights = new ArrayList<>();
+        weights.add("Items,Weights");
+        for (int i = 0; i < wide; i++) {
+            weights.add(TestSupport.name(i) + "," + (i < 6 ? (50 + random.nextInt(50)) / 100.0 : 0.01));
+        }
+        List<String> data = new ArrayList<>();
+        data.add("TID,Items");
+        for (int row = 1; row <= 400; row++) {
+            int[] items = row % 40 == 0 ? random.ints(0, wide).distinct().limit(wide).toArray()
+                    : random.ints(0, 6).distinct().limit(1 + random.nextInt(3)).toArray();
+            List<String> names = new ArrayList<>();
+            for (int item : items) {
+                names.add(TestSupport.name(item));
+            }
+            data.add(row + ",[" + String.join(", ", names) + "]");
+        }
+        Path dataFile = dir.resolve("data.csv");
+        Path weightsFile = dir.resolve("weights.csv");
+        Files.write(dataFile, data);
+        Files.write(weightsFile, weights);
+        return new Path[]{dataFile, weightsFile};
+    }
+
+    static void compare(List<Transaction> stream, ItemDictionary dictionary, ResultSink expected, ResultSink pooled,
+                        ResultSink offHeap, ResultSink parallel, ForkJoinPool pool) throws Exception {
+        List<Transaction> first = new ArrayList<>(stream.subList(0, WINDOW));
+        SWNNode root = miningFWPsFromBenmarkDataset.createRoot();
+        TailRing tail = new TailRing(WINDOW);
+        WindowIndex index = new WindowIndex(WINDOW, dictionary.size());
+        ItemRank rank = new ItemRank(dictionary.size());
+        miningFWPsFromBenmarkDataset.swnTreeConstruction(first, root, tail, index, rank);
+        SlideBatcher objectMiner = new SlideBatcher(root, tail, index, rank, dictionary, MIN_WS, BATCH, 0, MiningOptions.sequential(), expected);
+
+        PooledSWNTree[] trees = new PooledSWNTree[3];
+        SlideBatcher[] miners = new SlideBatcher[3];
+        ResultSink[] sinks = {pooled, offHeap, parallel};
+        for (int i = 0; i < trees.length; i++) {
+            WindowIndex treeIndex = new WindowIndex(WINDOW, dictionary.size());
+            ItemRank treeRank = new ItemRank(dictionary.size());
+            trees[i] = new PooledSWNTree(WINDOW, WINDOW * 4, i == 1);
+            trees[i].build(first, treeIndex, treeRank);
+            MiningOptions options = i == 2 ? MiningOptions.parallel(pool) : MiningOptions.sequential();
+            options.parallelThreshold = 1;
+            miners[i] = new SlideBatcher(trees[i], treeIndex, treeRank, dictionary, MIN_WS, BATCH, 0, options, sinks[i]);
+        }
+
+        for (Transaction t : stream.subList(WINDOW, stream.size())) {
+            boolean slid = objectMiner.offer(t) != null;
+            for (SlideBatcher miner : miners) {
+                TestSupport.check((miner.offer(t) != null) == slid, "the miners slide apart at tid " + t.tid);
+            }
+            if (slid) {
+                int nodes = miningFWPsFromBenmarkDataset.countDescendants(root);
+                TestSupport.check(root.descendants == nodes, "object tree counts " + root.descendants + " nodes, it has " + nodes);
+                for (PooledSWNTree tree : trees) {
+                    TestSupport.check(tree.nodeCount() == nodes, "pooled tree has " + tree.nodeCount() + " nodes instead of " + nodes);
+                }
+            }
+        }
+        objectMiner.flush();
+        for (SlideBatcher miner : miners) {
+            miner.flush();
+        }
+    }
+}
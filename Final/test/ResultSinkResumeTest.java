@@ -0,0 +1,91 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// A miner that resumes from a snapshot taken after slide CHECKPOINT has already written later
+// windows, the last of them only in part. The resumed results file, with the windows after the
+// checkpoint written again, must be the file of a run that never stopped. The snapshot is only
+// taken once flush has put the windows before it on disk.
+class ResultSinkResumeTest {
+    static final int SLIDES = 12;
+    static final int CHECKPOINT = 7;
+    static final int WRITTEN = 10;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("resume");
+        Map<String, Double> weights = new LinkedHashMap<>();
+        for (int i = 0; i < 8; i++) {
+            weights.put(TestSupport.name(i), (i + 1) / 10.0);
+        }
+        ItemDictionary dictionary = ItemDictionary.fromWeights(weights);
+        List<WindowResult> results = results(new Random(11), dictionary.size());
+
+        for (String suffix : new String[]{".txt", ".fwpr"}) {
+            Path expected = dir.resolve("expected" + suffix);
+            try (ResultSink sink = miningFWPsFromBenmarkDataset.openResults(expected.toString(), dictionary, null)) {
+                for (WindowResult result : results) {
+                    sink.accept(result);
+                }
+            }
+            Path resumed = dir.resolve("resumed" + suffix);
+            try (ResultSink sink = miningFWPsFromBenmarkDataset.openResults(resumed.toString(), dictionary, null)) {
+                for (WindowResult result : results.subList(0, WRITTEN)) {
+                    sink.accept(result);
+                }
+            }
+            // The crash cut the last window short
+            byte[] written = Files.readAllBytes(resumed);
+            Files.write(resumed, Arrays.copyOf(written, written.length - 3));
+            try (ResultSink sink = suffix.equals(".txt")
+                    ? TextResultSink.resume(resumed, dictionary, CHECKPOINT)
+                    : BinaryResultSink.resume(resumed, dictionary, CHECKPOINT)) {
+                for (WindowResult result : results.subList(CHECKPOINT, SLIDES)) {
+                    sink.accept(result);
+                }
+            }
+            TestSupport.check(Arrays.equals(Files.readAllBytes(expected), Files.readAllBytes(resumed)),
+                    suffix + ": the resumed file differs from an uninterrupted run");
+
+            // Resuming without a results file starts one
+            Path fresh = dir.resolve("fresh" + suffix);
+            try (ResultSink sink = suffix.equals(".txt")
+                    ? TextResultSink.resume(fresh, dictionary, CHECKPOINT)
+                    : BinaryResultSink.resume(fresh, dictionary, CHECKPOINT)) {
+                sink.accept(results.get(CHECKPOINT));
+            }
+            TestSupport.check(Files.size(fresh) > 0, suffix + ": resuming without a file wrote nothing");
+
+            // A snapshot is written once flush returns, so everything accepted must be on disk by then
+            Path flushed = dir.resolve("flushed" + suffix);
+            try (ResultSink sink = new AsyncResultSink(miningFWPsFromBenmarkDataset.openResults(flushed.toString(), dictionary, null), 2)) {
+                for (WindowResult result : results) {
+                    sink.accept(result);
+                }
+                sink.flush();
+                TestSupport.check(Arrays.equals(Files.readAllBytes(expected), Files.readAllBytes(flushed)),
+                        suffix + ": flush left results in memory");
+            }
+        }
+        System.out.println("ResultSinkResumeTest passed");
+    }
+
+    // Windows 1..SLIDES, each with a few random ascending item sets
+    static List<WindowResult> results(Random random, int items) {
+        List<WindowResult> results = new ArrayList<>();
+        for (int slide = 1; slide <= SLIDES; slide++) {
+            List<int[]> fwps = new ArrayList<>();
+            int count = 1 + random.nextInt(5);
+            for (int f = 0; f < count; f++) {
+                fwps.add(random.ints(0, items).distinct().limit(1 + random.nextInt(3)).sorted().toArray());
+            }
+            results.add(new WindowResult(slide, 100 + slide, random.nextDouble() * 50, fwps));
+        }
+        return results;
+    }
+}
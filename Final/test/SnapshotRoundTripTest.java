@@ -0,0 +1,93 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// A miner snapshotted to a file, read back and resumed must mine the rest of the stream exactly
+// as the miner that never stopped, for the object, pooled and off-heap trees. The stream holds
+// empty rows, whose tail leaf is the root.
+class SnapshotRoundTripTest {
+    static final int WINDOW = 50;
+    static final int BATCH = 3;
+    static final double MIN_WS = 0.2;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("snapshot-test");
+        Path[] dataset = TestSupport.writeDataset(dir, 400, 10, 7, 11);
+        List<Transaction> stream = TestSupport.readAll(dataset);
+        ItemDictionary dictionary = TestSupport.dictionary(dataset);
+        int stop = WINDOW + BATCH * 40;
+        for (String layout : new String[]{"object", "pooled", "offHeap"}) {
+            CollectingResultSink expected = new CollectingResultSink();
+            SlideBatcher whole = start(layout, dictionary, stream.subList(0, WINDOW), expected);
+            for (Transaction t : stream.subList(WINDOW, stream.size())) {
+                whole.offer(t);
+            }
+            whole.flush();
+
+            SlideBatcher first = start(layout, dictionary, stream.subList(0, WINDOW), null);
+            for (Transaction t : stream.subList(WINDOW, stop)) {
+                first.offer(t);
+            }
+            first.flush();
+            Path file = dir.resolve(layout + ".fwps");
+            // Written once the miner has slid on, as the writer thread may, so the snapshot must
+            // not share anything the slides change
+            MinerSnapshot captured = first.snapshot();
+            for (Transaction t : stream.subList(stop, stop + BATCH * 10)) {
+                first.offer(t);
+            }
+            captured.write(file);
+            MinerSnapshot snapshot = MinerSnapshot.read(file);
+            TestSupport.check(snapshot.window.stream().anyMatch(t -> t.items.length == 0), "no empty row in the snapshot window");
+
+            CollectingResultSink resumed = new CollectingResultSink();
+            SlideBatcher second = restore(layout, snapshot, resumed);
+            for (Transaction t : stream.subList(stop, stream.size())) {
+                second.offer(t);
+            }
+            second.flush();
+
+            List<WindowResult> tail = new ArrayList<>();
+            for (WindowResult result : expected.results()) {
+                if (result.slide > snapshot.slides) {
+                    tail.add(result);
+                }
+            }
+            TestSupport.check(!tail.isEmpty(), layout + ": nothing mined after the snapshot");
+            TestSupport.checkSameResults(tail, resumed.results(), layout);
+        }
+        System.out.println("SnapshotRoundTripTest passed");
+    }
+
+    static SlideBatcher start(String layout, ItemDictionary dictionary, List<Transaction> window, ResultSink sink) {
+        WindowIndex index = new WindowIndex(WINDOW, dictionary.size());
+        ItemRank rank = new ItemRank(dictionary.size());
+        MiningOptions options = MiningOptions.sequential();
+        if (layout.equals("object")) {
+            SWNNode root = miningFWPsFromBenmarkDataset.createRoot();
+            TailRing tail = new TailRing(WINDOW);
+            miningFWPsFromBenmarkDataset.swnTreeConstruction(new ArrayList<>(window), root, tail, index, rank);
+            return new SlideBatcher(root, tail, index, rank, dictionary, MIN_WS, BATCH, 0, options, sink);
+        }
+        PooledSWNTree tree = new PooledSWNTree(WINDOW, WINDOW * 4, layout.equals("offHeap"));
+        tree.build(new ArrayList<>(window), index, rank);
+        return new SlideBatcher(tree, index, rank, dictionary, MIN_WS, BATCH, 0, options, sink);
+    }
+
+    static SlideBatcher restore(String layout, MinerSnapshot snapshot, ResultSink sink) {
+        WindowIndex index = snapshot.restoreIndex();
+        ItemRank rank = snapshot.restoreRank();
+        SlideBatcher batcher;
+        if (layout.equals("object")) {
+            SWNNode root = miningFWPsFromBenmarkDataset.createRoot();
+            TailRing tail = new TailRing(WINDOW);
+            snapshot.restoreTree(root, tail);
+            batcher = new SlideBatcher(root, tail, index, rank, snapshot.dictionary, MIN_WS, BATCH, 0, MiningOptions.sequential(), sink);
+        } else {
+            batcher = new SlideBatcher(snapshot.restorePooled(layout.equals("offHeap")), index, rank, snapshot.dictionary, MIN_WS, BATCH, 0, MiningOptions.sequential(), sink);
+        }
+        batcher.resumeAt(snapshot.slides);
+        return batcher;
+    }
+}
@@ -0,0 +1,164 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Shared pieces of the runnable tests in this directory. mvn -B test runs them all, or by hand:
+//   javac -d out Final/*.java Final/test/*.java
+//   for t in ClosedFWPsTest TopKFWPsTest PooledTreeTest SnapshotRoundTripTest ResultSinkResumeTest; do java -cp out $t || break; done
+// Every test is a main that throws on the first failed check and prints one line when it passes.
+class TestSupport {
+    private TestSupport() {
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    // A data and a weights CSV in dir: rows transactions over items named A, B, ..., drawn from
+    // a few overlapping templates so closed and maximal sets differ from the full FWP set. Every
+    // emptyEvery-th row is "[]" (0 turns empty rows off).
+    static Path[] writeDataset(Path dir, int rows, int items, int emptyEvery, long seed) throws IOException {
+        Random random = new Random(seed);
+        List<String> weights = new ArrayList<>();
+        weights.add("Items,Weights");
+        for (int i = 0; i < items; i++) {
+            weights.add(name(i) + "," + (1 + random.nextInt(99)) / 100.0);
+        }
+        int[][] templates = new int[4][];
+        for (int t = 0; t < templates.length; t++) {
+            templates[t] = random.ints(0, items).distinct().limit(Math.max(2, items / 2)).sorted().toArray();
+        }
+        List<String> data = new ArrayList<>();
+        data.add("TID,Items");
+        for (int row = 1; row <= rows; row++) {
+            List<String> names = new ArrayList<>();
+            if (emptyEvery == 0 || row % emptyEvery != 0) {
+                boolean[] in = new boolean[items];
+                for (int item : templates[random.nextInt(templates.length)]) {
+                    in[item] = random.nextInt(10) > 0;
+                }
+                in[random.nextInt(items)] = true;
+                for (int item = 0; item < items; item++) {
+                    if (in[item]) {
+                        names.add(name(item));
+                    }
+                }
+            }
+            data.add(row + ",[" + String.join(", ", names) + "]");
+        }
+        Path dataFile = dir.resolve("data.csv");
+        Path weightsFile = dir.resolve("weights.csv");
+        Files.write(dataFile, data);
+        Files.write(weightsFile, weights);
+        return new Path[]{dataFile, weightsFile};
+    }
+
+    static String name(int item) {
+        return item < 26 ? String.valueOf((char) ('A' + item)) : "I" + item;
+    }
+
+    static List<Transaction> readAll(Path[] dataset) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        try (TransactionSource source = miningFWPsFromBenmarkDataset.openTransactions(dataset[0].toString(), dataset[1].toString())) {
+            while (source.next()) {
+                transactions.add(source.transaction());
+            }
+        }
+        return transactions;
+    }
+
+    // The dictionary of the data set; ids follow the weights file, so they match readAll's
+    static ItemDictionary dictionary(Path[] dataset) throws IOException {
+        try (TransactionSource source = miningFWPsFromBenmarkDataset.openTransactions(dataset[0].toString(), dataset[1].toString())) {
+            while (source.next()) {
+                // items missing from the weights are interned as they are read
+            }
+            return source.dictionary();
+        }
+    }
+
+    // The window a result was mined from: the windowSize transactions up to its lastTid
+    static List<Transaction> window(List<Transaction> stream, WindowResult result, int windowSize) {
+        for (int i = 0; i < stream.size(); i++) {
+            if (stream.get(i).tid == result.lastTid) {
+                return stream.subList(Math.max(0, i + 1 - windowSize), i + 1);
+            }
+        }
+        throw new AssertionError("No transaction with tid " + result.lastTid);
+    }
+
+    // Brute-force supports of every itemset over items 0..items-1 in window, indexed by the
+    // bitmask of the itemset; small enough below 16 items
+    static class Supports {
+        final int[] count;
+        final double[] tw;
+        final double ttw;
+
+        Supports(List<Transaction> window, int items) {
+            count = new int[1 << items];
+            tw = new double[1 << items];
+            int[] masks = new int[window.size()];
+            double total = 0;
+            for (int t = 0; t < masks.length; t++) {
+                masks[t] = mask(window.get(t).items);
+                total += window.get(t).tw;
+            }
+            ttw = total;
+            for (int set = 1; set < count.length; set++) {
+                for (int t = 0; t < masks.length; t++) {
+                    if ((masks[t] & set) == set) {
+                        count[set]++;
+                        tw[set] += window.get(t).tw;
+                    }
+                }
+            }
+        }
+
+        double ws(int set) {
+            return tw[set] / ttw;
+        }
+
+        boolean frequent(int set, double minWs) {
+            return count[set] > 0 && ws(set) >= minWs;
+        }
+    }
+
+    static int mask(int[] itemSet) {
+        int mask = 0;
+        for (int item : itemSet) {
+            mask |= 1 << item;
+        }
+        return mask;
+    }
+
+    // The itemsets as sorted bitmasks, so results can be compared whatever order they come in
+    static List<Integer> masks(List<int[]> itemSets) {
+        List<Integer> masks = new ArrayList<>();
+        for (int[] itemSet : itemSets) {
+            masks.add(mask(itemSet));
+        }
+        masks.sort(null);
+        return masks;
+    }
+
+    // Same windows, in the same order, each with the same FWPs in the same order
+    static void checkSameResults(List<WindowResult> expected, List<WindowResult> actual, String what) {
+        check(expected.size() == actual.size(), what + ": " + actual.size() + " windows instead of " + expected.size());
+        for (int w = 0; w < expected.size(); w++) {
+            WindowResult e = expected.get(w);
+            WindowResult a = actual.get(w);
+            check(e.slide == a.slide && e.lastTid == a.lastTid, what + ": window " + w + " is " + a + " instead of " + e);
+            check(e.fwps.size() == a.fwps.size(), what + ": window " + e.slide + " has " + a.fwps.size() + " FWPs instead of " + e.fwps.size());
+            for (int i = 0; i < e.fwps.size(); i++) {
+                check(Arrays.equals(e.fwps.get(i), a.fwps.get(i)), what + ": window " + e.slide + " FWP " + i + " is "
+                        + Arrays.toString(a.fwps.get(i)) + " instead of " + Arrays.toString(e.fwps.get(i)));
+            }
+        }
+    }
+}
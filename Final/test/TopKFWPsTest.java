@@ -0,0 +1,48 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Top-k mining against a brute force over all itemsets of every window: k itemsets (fewer when
+// fewer reach minWs), in descending ws, whose ws values are the k highest of the window. Itemsets
+// tied on ws at the cut may be swapped, so the test compares ws values, not the sets themselves.
+class TopKFWPsTest {
+    static final int ITEMS = 10;
+    static final int WINDOW = 40;
+    static final int BATCH = 5;
+    static final double MIN_WS = 0.1;
+    static final double EPSILON = 1e-9;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("topk-test");
+        for (long seed : new long[]{5, 23}) {
+            Path[] dataset = TestSupport.writeDataset(Files.createDirectories(dir.resolve("s" + seed)), 300, ITEMS, 0, seed);
+            List<Transaction> stream = TestSupport.readAll(dataset);
+            ItemDictionary dictionary = TestSupport.dictionary(dataset);
+            for (int k : new int[]{1, 7, 40, 2000}) {
+                CollectingResultSink sink = new CollectingResultSink();
+                ClosedFWPsTest.mine(stream, dictionary, MiningOptions.topK(new TopKFWPs(k, MIN_WS)), sink);
+                for (WindowResult result : sink.results()) {
+                    String where = "seed " + seed + ", k=" + k + ", window " + result.slide;
+                    TestSupport.Supports supports = new TestSupport.Supports(TestSupport.window(stream, result, WINDOW), ITEMS);
+                    List<Double> expected = new ArrayList<>();
+                    for (int set = 1; set < 1 << ITEMS; set++) {
+                        if (supports.frequent(set, MIN_WS)) {
+                            expected.add(supports.ws(set));
+                        }
+                    }
+                    expected.sort((a, b) -> Double.compare(b, a));
+                    expected = expected.subList(0, Math.min(k, expected.size()));
+
+                    TestSupport.check(result.fwps.size() == expected.size(), where + ": " + result.fwps.size() + " itemsets instead of " + expected.size());
+                    TestSupport.check(TestSupport.masks(result.fwps).stream().distinct().count() == result.fwps.size(), where + ": an itemset is reported twice");
+                    for (int i = 0; i < expected.size(); i++) {
+                        double ws = supports.ws(TestSupport.mask(result.fwps.get(i)));
+                        TestSupport.check(Math.abs(ws - expected.get(i)) < EPSILON, where + ": itemset " + i + " has ws " + ws + " instead of " + expected.get(i));
+                    }
+                }
+            }
+        }
+        System.out.println("TopKFWPsTest passed");
+    }
+}